@@ -12,6 +12,8 @@ const RNCallKeepDidDisplayIncomingCall = 'RNCallKeepDidDisplayIncomingCall';
 const RNCallKeepDidPerformSetMutedCallAction = 'RNCallKeepDidPerformSetMutedCallAction';
 const RNCallKeepDidToggleHoldAction = 'RNCallKeepDidToggleHoldAction';
 const RNCallKeepDidPerformDTMFAction = 'RNCallKeepDidPerformDTMFAction';
+const RNCallKeepDidProgressDTMFSequence = 'RNCallKeepDidProgressDTMFSequence';
+const RNCallKeepDidCompleteDTMFSequence = 'RNCallKeepDidCompleteDTMFSequence';
 const RNCallKeepProviderReset = 'RNCallKeepProviderReset';
 const RNCallKeepCheckReachability = 'RNCallKeepCheckReachability';
 const RNCallKeepDidLoadWithEvents = 'RNCallKeepDidLoadWithEvents';
@@ -20,6 +22,9 @@ const RNCallKeepOnSilenceIncomingCall = 'RNCallKeepOnSilenceIncomingCall';
 const RNCallKeepOnIncomingConnectionFailed = 'RNCallKeepOnIncomingConnectionFailed';
 const RNCallKeepDidChangeAudioRoute = 'RNCallKeepDidChangeAudioRoute';
 const RNCallKeepHasActiveCall = 'RNCallKeepHasActiveCall';
+const RNCallKeepDidChangeConference = 'RNCallKeepDidChangeConference';
+const RNCallKeepDidFindOrphanedCall = 'RNCallKeepDidFindOrphanedCall';
+const RNCallKeepDidReceiveWakeCalls = 'RNCallKeepDidReceiveWakeCalls';
 const isIOS = Platform.OS === 'ios';
 
 const didReceiveStartCallAction = handler => {
@@ -70,6 +75,12 @@ const didToggleHoldCallAction = handler =>
 const didPerformDTMFAction = handler =>
   eventEmitter.addListener(RNCallKeepDidPerformDTMFAction, (data) => handler(data));
 
+const didProgressDTMFSequence = handler =>
+  eventEmitter.addListener(RNCallKeepDidProgressDTMFSequence, (data) => handler(data));
+
+const didCompleteDTMFSequence = handler =>
+  eventEmitter.addListener(RNCallKeepDidCompleteDTMFSequence, (data) => handler(data));
+
 const didResetProvider = handler =>
   eventEmitter.addListener(RNCallKeepProviderReset, handler);
 
@@ -88,8 +99,43 @@ const silenceIncomingCall = handler =>
 const createIncomingConnectionFailed = handler =>
   eventEmitter.addListener(RNCallKeepOnIncomingConnectionFailed, (data) => handler(data));
 
+const didChangeConference = handler =>
+  eventEmitter.addListener(RNCallKeepDidChangeConference, (data) => handler(data));
+
+const didFindOrphanedCall = handler =>
+  eventEmitter.addListener(RNCallKeepDidFindOrphanedCall, (data) => handler(data));
+
+const didReceiveWakeCalls = handler =>
+  eventEmitter.addListener(RNCallKeepDidReceiveWakeCalls, (data) => handler(data));
+
 export const emit = (eventName, payload) => eventEmitter.emit(eventName, payload);
 
+// Native event of each listener type, so Android can skip the events nobody listens to
+export const eventNames = {
+  didReceiveStartCallAction: RNCallKeepDidReceiveStartCallAction,
+  answerCall: RNCallKeepPerformAnswerCallAction,
+  endCall: RNCallKeepPerformEndCallAction,
+  didActivateAudioSession: RNCallKeepDidActivateAudioSession,
+  didDeactivateAudioSession: RNCallKeepDidDeactivateAudioSession,
+  didDisplayIncomingCall: RNCallKeepDidDisplayIncomingCall,
+  didPerformSetMutedCallAction: RNCallKeepDidPerformSetMutedCallAction,
+  didToggleHoldCallAction: RNCallKeepDidToggleHoldAction,
+  didPerformDTMFAction: RNCallKeepDidPerformDTMFAction,
+  didProgressDTMFSequence: RNCallKeepDidProgressDTMFSequence,
+  didCompleteDTMFSequence: RNCallKeepDidCompleteDTMFSequence,
+  didResetProvider: RNCallKeepProviderReset,
+  checkReachability: RNCallKeepCheckReachability,
+  didLoadWithEvents: RNCallKeepDidLoadWithEvents,
+  showIncomingCallUi: RNCallKeepShowIncomingCallUi,
+  silenceIncomingCall: RNCallKeepOnSilenceIncomingCall,
+  createIncomingConnectionFailed: RNCallKeepOnIncomingConnectionFailed,
+  didChangeAudioRoute: RNCallKeepDidChangeAudioRoute,
+  onHasActiveCall: RNCallKeepHasActiveCall,
+  didChangeConference: RNCallKeepDidChangeConference,
+  didFindOrphanedCall: RNCallKeepDidFindOrphanedCall,
+  didReceiveWakeCalls: RNCallKeepDidReceiveWakeCalls,
+};
+
 export const listeners = {
   didReceiveStartCallAction,
   answerCall,
@@ -100,6 +146,8 @@ export const listeners = {
   didPerformSetMutedCallAction,
   didToggleHoldCallAction,
   didPerformDTMFAction,
+  didProgressDTMFSequence,
+  didCompleteDTMFSequence,
   didResetProvider,
   checkReachability,
   didLoadWithEvents,
@@ -107,5 +155,8 @@ export const listeners = {
   silenceIncomingCall,
   createIncomingConnectionFailed,
   didChangeAudioRoute,
-  onHasActiveCall
+  onHasActiveCall,
+  didChangeConference,
+  didFindOrphanedCall,
+  didReceiveWakeCalls,
 };
@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2016-2019 The CallKeep Authors (see the AUTHORS file)
+ * SPDX-License-Identifier: ISC, MIT
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package io.wazo.callkeep;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.telecom.Connection;
+import android.util.Log;
+import androidx.annotation.Nullable;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.WritableMap;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/*
+ * Persisted copy of the active connections, so calls known before the process died can be found on restart.
+ * Each call is one key of the `rn-callkeep-active-calls` preferences, written with `apply()` so the Telecom callbacks don't wait for the disk.
+ */
+public class ActiveCallJournal {
+    private static final String TAG = "RNCallKeep";
+    private static final String PREFERENCES_NAME = "rn-callkeep-active-calls";
+
+    private static SharedPreferences preferences;
+    // Mirror of the preferences, so state changes don't have to read them back
+    private static final HashMap<String, JSONObject> records = new HashMap<>();
+
+    public static synchronized void onCreated(@Nullable Context context, String uuid, boolean outgoing, @Nullable String number) {
+        if (uuid == null || !init(context)) {
+            return;
+        }
+
+        JSONObject record = new JSONObject();
+        try {
+            long now = System.currentTimeMillis();
+            record.put("direction", outgoing ? "outgoing" : "incoming");
+            record.put("number", number);
+            record.put("state", Connection.STATE_INITIALIZING);
+            record.put("createdAt", now);
+            record.put("updatedAt", now);
+        } catch (JSONException e) {
+            return;
+        }
+        records.put(uuid, record);
+        preferences.edit().putString(uuid, record.toString()).apply();
+    }
+
+    public static synchronized void onStateChanged(@Nullable Context context, String uuid, int state) {
+        if (uuid == null || !init(context)) {
+            return;
+        }
+
+        JSONObject record = records.get(uuid);
+        if (record == null || record.optInt("state") == state) {
+            return;
+        }
+        try {
+            record.put("state", state);
+            record.put("updatedAt", System.currentTimeMillis());
+        } catch (JSONException e) {
+            return;
+        }
+        preferences.edit().putString(uuid, record.toString()).apply();
+    }
+
+    public static synchronized void onRemoved(@Nullable Context context, String uuid) {
+        if (uuid == null || !init(context) || records.remove(uuid) == null) {
+            return;
+        }
+        preferences.edit().remove(uuid).apply();
+    }
+
+    /*
+     * Removes and returns the calls of the journal that are not in `liveUuids`, ie: created by a previous process.
+     */
+    public static synchronized List<WritableMap> reconcile(@Nullable Context context, Set<String> liveUuids) {
+        List<WritableMap> orphans = new ArrayList<>();
+        if (!init(context)) {
+            return orphans;
+        }
+
+        SharedPreferences.Editor editor = preferences.edit();
+        for (String uuid : new ArrayList<>(records.keySet())) {
+            if (liveUuids.contains(uuid)) {
+                continue;
+            }
+            JSONObject record = records.remove(uuid);
+            editor.remove(uuid);
+
+            int state = record.optInt("state", Connection.STATE_DISCONNECTED);
+            WritableMap orphan = Arguments.createMap();
+            orphan.putString("callUUID", uuid);
+            orphan.putString("direction", record.optString("direction"));
+            orphan.putString("number", record.isNull("number") ? null : record.optString("number"));
+            orphan.putString("state", Connection.stateToString(state));
+            orphan.putInt("stateCode", state);
+            orphan.putDouble("createdAt", record.optLong("createdAt"));
+            orphan.putDouble("updatedAt", record.optLong("updatedAt"));
+            orphans.add(orphan);
+        }
+        editor.apply();
+
+        Log.d(TAG, "[ActiveCallJournal] reconcile, orphaned calls: " + orphans.size() + ", live calls: " + liveUuids.size());
+        return orphans;
+    }
+
+    // Loads the records left by a previous process the first time
+    private static boolean init(@Nullable Context context) {
+        if (preferences != null) {
+            return true;
+        }
+        if (context == null) {
+            return false;
+        }
+
+        preferences = context.getApplicationContext().getSharedPreferences(PREFERENCES_NAME, Context.MODE_PRIVATE);
+        for (Map.Entry<String, ?> entry : preferences.getAll().entrySet()) {
+            try {
+                records.put(entry.getKey(), new JSONObject(String.valueOf(entry.getValue())));
+            } catch (JSONException e) {
+                preferences.edit().remove(entry.getKey()).apply();
+            }
+        }
+        if (!records.isEmpty()) {
+            Log.d(TAG, "[ActiveCallJournal] init, calls left by a previous process: " + records.size());
+        }
+        return true;
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2016-2019 The CallKeep Authors (see the AUTHORS file)
+ * SPDX-License-Identifier: ISC, MIT
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package io.wazo.callkeep;
+
+import android.content.Context;
+import android.media.AudioManager;
+import android.util.Log;
+import androidx.annotation.Nullable;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/*
+ * Counts the calls using audio (answered or placed), so the audio session is only activated
+ * for the first one and the audio mode only reset when the last one ends.
+ */
+public class AudioSessionManager {
+    private static final String TAG = "RNCallKeep";
+
+    private static final Set<String> activeCalls = new HashSet<>();
+
+    /*
+     * Returns true when this call activates the audio session.
+     */
+    public static synchronized boolean acquire(String uuid) {
+        if (uuid == null || !activeCalls.add(uuid)) {
+            return false;
+        }
+        Log.d(TAG, "[AudioSessionManager] acquire, uuid: " + uuid + ", active calls: " + activeCalls.size());
+        return activeCalls.size() == 1;
+    }
+
+    /*
+     * Returns true when this call deactivates the audio session, the audio mode is then reset.
+     */
+    public static synchronized boolean release(@Nullable Context context, String uuid) {
+        if (uuid == null || !activeCalls.remove(uuid)) {
+            return false;
+        }
+        Log.d(TAG, "[AudioSessionManager] release, uuid: " + uuid + ", active calls: " + activeCalls.size());
+        if (!activeCalls.isEmpty()) {
+            return false;
+        }
+
+        if (context != null) {
+            AudioManager audioManager = (AudioManager) context.getSystemService(Context.AUDIO_SERVICE);
+            if (audioManager != null) {
+                audioManager.setMode(AudioManager.MODE_NORMAL);
+            }
+        }
+        return true;
+    }
+
+    public static synchronized int getActiveCallCount() {
+        return activeCalls.size();
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2016-2019 The CallKeep Authors (see the AUTHORS file)
+ * SPDX-License-Identifier: ISC, MIT
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package io.wazo.callkeep;
+
+/*
+ * Call events for native code running in the app process (eg: a SIP or WebRTC stack), delivered alongside the JS events
+ * without going through the bridge. Register it with `VoiceConnectionService.addCallEventListener`.
+ * Extend `CallEventListener.Adapter` to only implement some of the events.
+ */
+public interface CallEventListener {
+    void onAnswer(String uuid, boolean withVideo);
+
+    void onEnd(String uuid);
+
+    void onHold(String uuid, boolean hold);
+
+    void onMute(String uuid, boolean muted);
+
+    void onDtmf(String uuid, String digits);
+
+    void onAudioRouteChanged(String uuid, String output);
+
+    void onShowIncomingCallUi(String uuid, String number, String callerName);
+
+    abstract class Adapter implements CallEventListener {
+        @Override
+        public void onAnswer(String uuid, boolean withVideo) {}
+
+        @Override
+        public void onEnd(String uuid) {}
+
+        @Override
+        public void onHold(String uuid, boolean hold) {}
+
+        @Override
+        public void onMute(String uuid, boolean muted) {}
+
+        @Override
+        public void onDtmf(String uuid, String digits) {}
+
+        @Override
+        public void onAudioRouteChanged(String uuid, String output) {}
+
+        @Override
+        public void onShowIncomingCallUi(String uuid, String number, String callerName) {}
+    }
+}
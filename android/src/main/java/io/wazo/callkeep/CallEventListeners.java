@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 2016-2019 The CallKeep Authors (see the AUTHORS file)
+ * SPDX-License-Identifier: ISC, MIT
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package io.wazo.callkeep;
+
+import android.util.Log;
+import androidx.annotation.Nullable;
+
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+
+import static io.wazo.callkeep.Constants.ACTION_ANSWER_CALL;
+import static io.wazo.callkeep.Constants.ACTION_DID_CHANGE_AUDIO_ROUTE;
+import static io.wazo.callkeep.Constants.ACTION_DTMF_TONE;
+import static io.wazo.callkeep.Constants.ACTION_END_CALL;
+import static io.wazo.callkeep.Constants.ACTION_HOLD_CALL;
+import static io.wazo.callkeep.Constants.ACTION_MUTE_CALL;
+import static io.wazo.callkeep.Constants.ACTION_SHOW_INCOMING_CALL_UI;
+import static io.wazo.callkeep.Constants.ACTION_UNHOLD_CALL;
+import static io.wazo.callkeep.Constants.ACTION_UNMUTE_CALL;
+import static io.wazo.callkeep.Constants.EXTRA_CALLER_NAME;
+import static io.wazo.callkeep.Constants.EXTRA_CALL_NUMBER;
+import static io.wazo.callkeep.Constants.EXTRA_CALL_UUID;
+import static io.wazo.callkeep.Constants.EXTRA_HAS_VIDEO;
+
+/*
+ * Registered `CallEventListener`s, called from the connection callbacks before the event is broadcast to the module.
+ */
+class CallEventListeners {
+    private static final String TAG = "RNCallKeep";
+
+    private static class Registration {
+        final CallEventListener listener;
+        @Nullable final Executor executor;
+
+        Registration(CallEventListener listener, @Nullable Executor executor) {
+            this.listener = listener;
+            this.executor = executor;
+        }
+    }
+
+    private static final CopyOnWriteArrayList<Registration> registrations = new CopyOnWriteArrayList<>();
+
+    static void add(CallEventListener listener, @Nullable Executor executor) {
+        remove(listener);
+        registrations.add(new Registration(listener, executor));
+    }
+
+    static void remove(CallEventListener listener) {
+        for (Registration registration : registrations) {
+            if (registration.listener == listener) {
+                registrations.remove(registration);
+            }
+        }
+    }
+
+    static void dispatch(String action, @Nullable Map<String, String> attributeMap) {
+        if (registrations.isEmpty() || attributeMap == null) {
+            return;
+        }
+
+        // Read now, the attributes of a connection keep changing
+        final String uuid = attributeMap.get(EXTRA_CALL_UUID);
+        final Event event;
+        switch (action) {
+            case ACTION_ANSWER_CALL:
+                final boolean withVideo = Boolean.valueOf(attributeMap.get(EXTRA_HAS_VIDEO));
+                event = new Event() {
+                    void call(CallEventListener listener) { listener.onAnswer(uuid, withVideo); }
+                };
+                break;
+            case ACTION_END_CALL:
+                event = new Event() {
+                    void call(CallEventListener listener) { listener.onEnd(uuid); }
+                };
+                break;
+            case ACTION_HOLD_CALL:
+            case ACTION_UNHOLD_CALL:
+                final boolean hold = ACTION_HOLD_CALL.equals(action);
+                event = new Event() {
+                    void call(CallEventListener listener) { listener.onHold(uuid, hold); }
+                };
+                break;
+            case ACTION_MUTE_CALL:
+            case ACTION_UNMUTE_CALL:
+                final boolean muted = ACTION_MUTE_CALL.equals(action);
+                event = new Event() {
+                    void call(CallEventListener listener) { listener.onMute(uuid, muted); }
+                };
+                break;
+            case ACTION_DTMF_TONE:
+                final String digits = attributeMap.get("DTMF");
+                event = new Event() {
+                    void call(CallEventListener listener) { listener.onDtmf(uuid, digits); }
+                };
+                break;
+            case ACTION_DID_CHANGE_AUDIO_ROUTE:
+                final String output = attributeMap.get("output");
+                event = new Event() {
+                    void call(CallEventListener listener) { listener.onAudioRouteChanged(uuid, output); }
+                };
+                break;
+            case ACTION_SHOW_INCOMING_CALL_UI:
+                final String number = attributeMap.get(EXTRA_CALL_NUMBER);
+                final String callerName = attributeMap.get(EXTRA_CALLER_NAME);
+                event = new Event() {
+                    void call(CallEventListener listener) { listener.onShowIncomingCallUi(uuid, number, callerName); }
+                };
+                break;
+            default:
+                return;
+        }
+        event.run();
+    }
+
+    // Calls each listener on its executor, or right away without one
+    private static abstract class Event implements Runnable {
+        abstract void call(CallEventListener listener);
+
+        @Override
+        public void run() {
+            for (final Registration registration : registrations) {
+                if (registration.executor == null) {
+                    deliver(registration.listener);
+                    continue;
+                }
+                registration.executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        deliver(registration.listener);
+                    }
+                });
+            }
+        }
+
+        private void deliver(CallEventListener listener) {
+            try {
+                call(listener);
+            } catch (Exception e) {
+                Log.e(TAG, "[CallEventListeners] listener error", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,452 @@
+/*
+ * Copyright (c) 2016-2019 The CallKeep Authors (see the AUTHORS file)
+ * SPDX-License-Identifier: ISC, MIT
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package io.wazo.callkeep;
+
+import android.content.Context;
+import android.telecom.DisconnectCause;
+import android.util.Log;
+import androidx.annotation.Nullable;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/*
+ * Append-only log of ended calls, one JSON record per line in the app files directory.
+ * Only an index (offset, times, number) is kept in memory, records are read from the file when queried.
+ * Configured with the `callHistory` settings key, disabled when not set.
+ */
+public class CallHistoryStore {
+    private static final String TAG = "RNCallKeep";
+    private static final String FILE_NAME = "RNCallKeepCallHistory.log";
+    private static final int DEFAULT_MAX_ENTRIES = 500;
+    private static final int DEFAULT_PAGE_SIZE = 20;
+
+    private static boolean enabled = false;
+    private static int maxEntries = DEFAULT_MAX_ENTRIES;
+
+    private static File file;
+    private static boolean loaded = false;
+    private static long nextId = 1;
+    // In file order, so `id` and `endedAt` are increasing
+    private static final ArrayList<Entry> entries = new ArrayList<>();
+    private static final HashMap<String, ArrayList<Integer>> byNumber = new HashMap<>();
+    private static final ExecutorService writer = Executors.newSingleThreadExecutor();
+
+    private static class Entry {
+        final long id;
+        final long offset;
+        final int length;
+        final long startedAt;
+        final long endedAt;
+        final boolean outgoing;
+        final String number;
+
+        Entry(long id, long offset, int length, long startedAt, long endedAt, boolean outgoing, String number) {
+            this.id = id;
+            this.offset = offset;
+            this.length = length;
+            this.startedAt = startedAt;
+            this.endedAt = endedAt;
+            this.outgoing = outgoing;
+            this.number = number;
+        }
+    }
+
+    public static synchronized void configure(@Nullable ReadableMap settings) {
+        ReadableMap config = null;
+        try {
+            config = settings != null && settings.hasKey("callHistory") ? settings.getMap("callHistory") : null;
+        } catch (Exception e) {
+            Log.w(TAG, "[CallHistoryStore] configure, can't read callHistory settings: " + e.toString());
+        }
+
+        enabled = config != null && (!config.hasKey("enabled") || config.getBoolean("enabled"));
+        maxEntries = config != null && config.hasKey("maxEntries") ? Math.max(config.getInt("maxEntries"), 1) : DEFAULT_MAX_ENTRIES;
+
+        Log.d(TAG, "[CallHistoryStore] configure, enabled: " + enabled + ", maxEntries: " + maxEntries);
+    }
+
+    /*
+     * Called when a connection is removed, `call` holds the times tracked by CallStateRegistry.
+     */
+    public static void onCallEnded(@Nullable Context context, @Nullable CallStateRegistry.CallState call, @Nullable VoiceConnection connection) {
+        if (!enabled || context == null || call == null) {
+            return;
+        }
+
+        final JSONObject record = new JSONObject();
+        try {
+            record.put("callUUID", call.uuid);
+            record.put("direction", call.outgoing ? "outgoing" : "incoming");
+            record.put("number", connection != null ? connection.getCallNumber() : null);
+            record.put("name", connection != null ? connection.getCallerName() : null);
+            record.put("startedAt", call.createdAt);
+            if (call.connectedAt > 0) {
+                record.put("connectedAt", call.connectedAt);
+                record.put("duration", call.endedAt - call.connectedAt);
+            }
+            record.put("endedAt", call.endedAt);
+            DisconnectCause cause = connection != null ? connection.getDisconnectCause() : null;
+            record.put("cause", causeToString(cause));
+        } catch (JSONException e) {
+            Log.w(TAG, "[CallHistoryStore] onCallEnded, can't build record: " + e.toString());
+            return;
+        }
+
+        final Context appContext = context.getApplicationContext();
+        writer.execute(new Runnable() {
+            @Override
+            public void run() {
+                append(appContext, record);
+            }
+        });
+    }
+
+    /*
+     * Returns `{ calls, cursor }`, most recently ended calls first. Pass the returned `cursor` to get the next page, it is null on the last page.
+     * `filter` can contain `number`, `direction` (`incoming` or `outgoing`), `from` and `to` (timestamps, on the start time).
+     */
+    public static synchronized WritableMap query(Context context, @Nullable ReadableMap filter, @Nullable String cursor, int limit) {
+        ensureLoaded(context);
+
+        String number = filter != null && filter.hasKey("number") ? filter.getString("number") : null;
+        String direction = filter != null && filter.hasKey("direction") ? filter.getString("direction") : null;
+        long from = filter != null && filter.hasKey("from") ? (long) filter.getDouble("from") : 0;
+        long to = filter != null && filter.hasKey("to") ? (long) filter.getDouble("to") : Long.MAX_VALUE;
+        long before = cursor != null ? Long.parseLong(cursor) : Long.MAX_VALUE;
+        limit = limit > 0 ? limit : DEFAULT_PAGE_SIZE;
+
+        // A call started after `from` also ended after it: skip everything that ended before
+        int floor = from > 0 ? firstEndedAfter(from) : 0;
+        int start = lastIdBefore(before);
+
+        ArrayList<Entry> matches = new ArrayList<>();
+        boolean hasMore = false;
+        ArrayList<Integer> positions = number != null ? byNumber.get(number) : null;
+        if (number != null && positions == null) {
+            start = -1;
+        }
+
+        int k = positions != null ? positions.size() - 1 : start;
+        for (; k >= 0; k--) {
+            int position = positions != null ? positions.get(k) : k;
+            if (position > start) {
+                continue;
+            }
+            if (position < floor) {
+                break;
+            }
+            Entry entry = entries.get(position);
+            if (entry.startedAt < from || entry.startedAt > to) {
+                continue;
+            }
+            if (direction != null && entry.outgoing != "outgoing".equals(direction)) {
+                continue;
+            }
+            if (matches.size() == limit) {
+                hasMore = true;
+                break;
+            }
+            matches.add(entry);
+        }
+
+        WritableArray calls = Arguments.createArray();
+        RandomAccessFile raf = null;
+        try {
+            raf = matches.isEmpty() ? null : new RandomAccessFile(file, "r");
+            for (Entry entry : matches) {
+                byte[] bytes = new byte[entry.length];
+                raf.seek(entry.offset);
+                raf.readFully(bytes);
+                calls.pushMap(toMap(new JSONObject(new String(bytes, StandardCharsets.UTF_8))));
+            }
+        } catch (IOException | JSONException e) {
+            Log.w(TAG, "[CallHistoryStore] query, can't read records: " + e.toString());
+        } finally {
+            closeQuietly(raf);
+        }
+
+        WritableMap result = Arguments.createMap();
+        result.putArray("calls", calls);
+        if (hasMore) {
+            result.putString("cursor", String.valueOf(matches.get(matches.size() - 1).id));
+        } else {
+            result.putNull("cursor");
+        }
+        return result;
+    }
+
+    // Times and ids are longs in the records, JS gets them as numbers
+    private static WritableMap toMap(JSONObject record) {
+        WritableMap call = Arguments.createMap();
+        call.putDouble("id", record.optLong("id"));
+        call.putString("callUUID", record.optString("callUUID"));
+        call.putString("direction", record.optString("direction"));
+        call.putString("number", record.isNull("number") ? null : record.optString("number"));
+        call.putString("name", record.isNull("name") ? null : record.optString("name"));
+        call.putDouble("startedAt", record.optLong("startedAt"));
+        if (record.has("connectedAt")) {
+            call.putDouble("connectedAt", record.optLong("connectedAt"));
+            call.putDouble("duration", record.optLong("duration"));
+        }
+        call.putDouble("endedAt", record.optLong("endedAt"));
+        call.putString("cause", record.optString("cause"));
+        return call;
+    }
+
+    public static synchronized void clear(Context context) {
+        ensureLoaded(context);
+        if (!file.delete() && file.exists()) {
+            Log.w(TAG, "[CallHistoryStore] clear, can't delete " + file.getPath());
+        }
+        entries.clear();
+        byNumber.clear();
+    }
+
+    private static synchronized void append(Context context, JSONObject record) {
+        ensureLoaded(context);
+
+        try {
+            record.put("id", nextId);
+        } catch (JSONException e) {
+            return;
+        }
+        byte[] bytes = (record.toString() + "\n").getBytes(StandardCharsets.UTF_8);
+        long offset = file.length();
+
+        FileOutputStream out = null;
+        try {
+            out = new FileOutputStream(file, true);
+            out.write(bytes);
+            out.getFD().sync();
+        } catch (IOException e) {
+            Log.w(TAG, "[CallHistoryStore] append, can't write record: " + e.toString());
+            return;
+        } finally {
+            closeQuietly(out);
+        }
+
+        index(record, offset, bytes.length - 1);
+
+        // Compact once in a while rather than on every call
+        if (entries.size() > maxEntries + Math.max(maxEntries / 4, 1)) {
+            compact();
+        }
+    }
+
+    private static void compact() {
+        int keepFrom = entries.size() - maxEntries;
+        File tmp = new File(file.getPath() + ".tmp");
+        Log.d(TAG, "[CallHistoryStore] compact, dropping " + keepFrom + " records");
+
+        RandomAccessFile in = null;
+        FileOutputStream out = null;
+        try {
+            in = new RandomAccessFile(file, "r");
+            out = new FileOutputStream(tmp, false);
+            long start = entries.get(keepFrom).offset;
+            byte[] buffer = new byte[8192];
+            in.seek(start);
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                out.write(buffer, 0, read);
+            }
+            out.getFD().sync();
+        } catch (IOException e) {
+            Log.w(TAG, "[CallHistoryStore] compact, error: " + e.toString());
+            tmp.delete();
+            return;
+        } finally {
+            closeQuietly(in);
+            closeQuietly(out);
+        }
+
+        if (!tmp.renameTo(file)) {
+            Log.w(TAG, "[CallHistoryStore] compact, can't replace " + file.getPath());
+            tmp.delete();
+            return;
+        }
+        load();
+    }
+
+    private static void ensureLoaded(Context context) {
+        if (loaded) {
+            return;
+        }
+        file = new File(context.getApplicationContext().getFilesDir(), FILE_NAME);
+        load();
+    }
+
+    private static void load() {
+        entries.clear();
+        byNumber.clear();
+        loaded = true;
+        if (!file.exists()) {
+            return;
+        }
+
+        long offset = 0;
+        long validLength = 0;
+        InputStream in = null;
+        try {
+            in = new BufferedInputStream(new FileInputStream(file));
+            ByteArrayOutputStream line = new ByteArrayOutputStream();
+            int b;
+            while ((b = in.read()) != -1) {
+                if (b != '\n') {
+                    line.write(b);
+                    continue;
+                }
+                byte[] bytes = line.toByteArray();
+                line.reset();
+                try {
+                    index(new JSONObject(new String(bytes, StandardCharsets.UTF_8)), offset, bytes.length);
+                } catch (JSONException e) {
+                    Log.w(TAG, "[CallHistoryStore] load, skipping invalid record at " + offset);
+                }
+                offset += bytes.length + 1;
+                validLength = offset;
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "[CallHistoryStore] load, error: " + e.toString());
+        } finally {
+            closeQuietly(in);
+        }
+
+        // Drop a record partially written when the process died
+        if (validLength < file.length()) {
+            Log.w(TAG, "[CallHistoryStore] load, truncating partial record at " + validLength);
+            RandomAccessFile raf = null;
+            try {
+                raf = new RandomAccessFile(file, "rw");
+                raf.setLength(validLength);
+            } catch (IOException e) {
+                Log.w(TAG, "[CallHistoryStore] load, can't truncate: " + e.toString());
+            } finally {
+                closeQuietly(raf);
+            }
+        }
+        Log.d(TAG, "[CallHistoryStore] load, records: " + entries.size());
+    }
+
+    private static void index(JSONObject record, long offset, int length) {
+        long id = record.optLong("id", nextId);
+        long endedAt = record.optLong("endedAt", 0);
+        if (!entries.isEmpty()) {
+            endedAt = Math.max(endedAt, entries.get(entries.size() - 1).endedAt);
+        }
+        String number = record.isNull("number") ? null : record.optString("number", null);
+        Entry entry = new Entry(id, offset, length, record.optLong("startedAt", 0), endedAt, "outgoing".equals(record.optString("direction")), number);
+
+        entries.add(entry);
+        nextId = Math.max(nextId, id + 1);
+        if (number != null) {
+            ArrayList<Integer> positions = byNumber.get(number);
+            if (positions == null) {
+                positions = new ArrayList<>();
+                byNumber.put(number, positions);
+            }
+            positions.add(entries.size() - 1);
+        }
+    }
+
+    // Index of the last entry with an id lower than `before`, -1 if none
+    private static int lastIdBefore(long before) {
+        int low = 0;
+        int high = entries.size() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (entries.get(mid).id < before) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return high;
+    }
+
+    private static int firstEndedAfter(long from) {
+        int low = 0;
+        int high = entries.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (entries.get(mid).endedAt < from) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    static String causeToString(@Nullable DisconnectCause cause) {
+        if (cause == null) {
+            return "unknown";
+        }
+        switch (cause.getCode()) {
+            case DisconnectCause.LOCAL:
+                return "local";
+            case DisconnectCause.REMOTE:
+                return "remote";
+            case DisconnectCause.REJECTED:
+                return "rejected";
+            case DisconnectCause.MISSED:
+                return "missed";
+            case DisconnectCause.BUSY:
+                return "busy";
+            case DisconnectCause.ERROR:
+                return "error";
+            case DisconnectCause.ANSWERED_ELSEWHERE:
+                return "answeredElsewhere";
+            case DisconnectCause.CANCELED:
+                return "canceled";
+            default:
+                return "other";
+        }
+    }
+
+    private static void closeQuietly(@Nullable Closeable closeable) {
+        if (closeable == null) {
+            return;
+        }
+        try {
+            closeable.close();
+        } catch (IOException ignored) {
+        }
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2016-2019 The CallKeep Authors (see the AUTHORS file)
+ * SPDX-License-Identifier: ISC, MIT
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package io.wazo.callkeep;
+
+import android.telecom.Connection;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.WritableMap;
+
+import java.io.PrintWriter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/*
+ * Counters of the library, available with `getStats()` and in `adb shell dumpsys activity service io.wazo.callkeep.VoiceConnectionService`.
+ */
+public class CallKeepStats {
+    public static final String CONNECTIONS_CREATED = "connectionsCreated";
+    public static final String CONNECTIONS_FAILED = "connectionsFailed";
+    public static final String EVENTS_SENT = "eventsSent";
+    public static final String EVENTS_QUEUED = "eventsQueued";
+    public static final String EVENTS_DROPPED = "eventsDropped";
+    public static final String WAKE_UPS = "wakeUps";
+    public static final String REACHABILITY_TIMEOUTS = "reachabilityTimeouts";
+    public static final String FOREGROUND_SERVICE_STARTS = "foregroundServiceStarts";
+
+    private static final Map<String, Long> counters = new LinkedHashMap<>();
+
+    static {
+        for (String name : new String[] { CONNECTIONS_CREATED, CONNECTIONS_FAILED, EVENTS_SENT, EVENTS_QUEUED, EVENTS_DROPPED, WAKE_UPS, REACHABILITY_TIMEOUTS, FOREGROUND_SERVICE_STARTS }) {
+            counters.put(name, 0L);
+        }
+    }
+
+    public static void increment(String name) {
+        add(name, 1);
+    }
+
+    public static synchronized void add(String name, long value) {
+        counters.put(name, counters.get(name) + value);
+    }
+
+    private static synchronized Map<String, Long> getCounters() {
+        return new LinkedHashMap<>(counters);
+    }
+
+    // Current values, read when the stats are requested
+    private static Map<String, Long> getGauges() {
+        Map<String, Long> gauges = new LinkedHashMap<>();
+        gauges.put("activeConnections", (long) VoiceConnectionService.currentConnections.size());
+        gauges.put("activeConferences", (long) VoiceConnectionService.currentConferences.size());
+        gauges.put("delayedServiceEvents", (long) VoiceConnectionService.getDelayedEventCount());
+        gauges.put("delayedJSEvents", (long) RNCallKeepModule.getDelayedEventCount());
+        return gauges;
+    }
+
+    public static WritableMap getStats() {
+        WritableMap stats = Arguments.createMap();
+        for (Map.Entry<String, Long> entry : getCounters().entrySet()) {
+            stats.putDouble(entry.getKey(), entry.getValue());
+        }
+        for (Map.Entry<String, Long> entry : getGauges().entrySet()) {
+            stats.putDouble(entry.getKey(), entry.getValue());
+        }
+        return stats;
+    }
+
+    // Plain text, so it doesn't need React Native to be loaded
+    public static void dump(PrintWriter writer) {
+        writer.println("RNCallKeep stats:");
+        for (Map.Entry<String, Long> entry : getCounters().entrySet()) {
+            writer.println("  " + entry.getKey() + ": " + entry.getValue());
+        }
+        for (Map.Entry<String, Long> entry : getGauges().entrySet()) {
+            writer.println("  " + entry.getKey() + ": " + entry.getValue());
+        }
+
+        writer.println("Active connections:");
+        for (Map.Entry<String, VoiceConnection> entry : VoiceConnectionService.currentConnections.entrySet()) {
+            VoiceConnection connection = entry.getValue();
+            writer.println("  " + entry.getKey() + ": " + Connection.stateToString(connection.getState()) + ", lifecycle: " + connection.getLifecycleState());
+        }
+    }
+}
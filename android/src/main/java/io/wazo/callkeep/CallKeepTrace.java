@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2016-2019 The CallKeep Authors (see the AUTHORS file)
+ * SPDX-License-Identifier: ISC, MIT
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package io.wazo.callkeep;
+
+import android.os.Build;
+import android.os.Trace;
+import android.util.Log;
+import androidx.annotation.Nullable;
+
+import com.facebook.react.bridge.ReadableMap;
+
+/*
+ * `android.os.Trace` sections around the hot paths, visible in Perfetto or systrace when the `trace` setting is enabled.
+ * When disabled, each call only reads a volatile flag.
+ */
+public class CallKeepTrace {
+    private static final String TAG = "RNCallKeep";
+    private static final String PREFIX = "RNCallKeep:";
+
+    private static volatile boolean enabled = false;
+
+    public static void configure(@Nullable ReadableMap settings) {
+        try {
+            enabled = settings != null && settings.hasKey("trace") && settings.getBoolean("trace");
+        } catch (Exception e) {
+            Log.w(TAG, "[CallKeepTrace] configure, can't read trace setting: " + e.toString());
+            enabled = false;
+        }
+        Log.d(TAG, "[CallKeepTrace] configure, enabled: " + enabled);
+    }
+
+    /*
+     * Returns whether a section was started, to be given to `endSection` so a toggle in between can't unbalance them.
+     */
+    public static boolean beginSection(String name) {
+        if (!enabled) {
+            return false;
+        }
+        Trace.beginSection(PREFIX + name);
+        return true;
+    }
+
+    // `detail` is only concatenated when tracing
+    public static boolean beginSection(String name, @Nullable String detail) {
+        if (!enabled) {
+            return false;
+        }
+        Trace.beginSection(PREFIX + name + " " + detail);
+        return true;
+    }
+
+    public static void endSection(boolean started) {
+        if (started) {
+            Trace.endSection();
+        }
+    }
+
+    // Slices spanning several callbacks, one per call. Like `beginSection`, the result is given to `endAsyncSection`.
+    public static boolean beginAsyncSection(String name, @Nullable String uuid) {
+        if (!enabled || uuid == null || Build.VERSION.SDK_INT < Build.VERSION_CODES.Q) {
+            return false;
+        }
+        Trace.beginAsyncSection(PREFIX + name + " " + uuid, uuid.hashCode());
+        return true;
+    }
+
+    // Ends a started slice even when tracing was disabled since
+    public static void endAsyncSection(String name, @Nullable String uuid, boolean started) {
+        if (started && Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            Trace.endAsyncSection(PREFIX + name + " " + uuid, uuid.hashCode());
+        }
+    }
+}
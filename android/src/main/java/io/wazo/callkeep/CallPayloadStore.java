@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2016-2019 The CallKeep Authors (see the AUTHORS file)
+ * SPDX-License-Identifier: ISC, MIT
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package io.wazo.callkeep;
+
+import android.os.Bundle;
+import android.os.SystemClock;
+import android.util.Log;
+import androidx.annotation.Nullable;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/*
+ * Payloads of `displayIncomingCall` and `startCall`, kept in the process instead of the Telecom extras:
+ * only the call UUID crosses system_server, so large payloads can't make the binder transaction fail.
+ * A payload expires after `PENDING_TTL_MS` if Telecom never creates its connection, else when the call ends.
+ */
+public class CallPayloadStore {
+    private static final String TAG = "RNCallKeep";
+    private static final long PENDING_TTL_MS = 2 * 60 * 1000;
+    private static final int MAX_ENTRIES = 64;
+
+    private static class Entry {
+        final Bundle payload;
+        long expiresAt;
+
+        Entry(Bundle payload, long expiresAt) {
+            this.payload = payload;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private static final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>();
+
+    public static synchronized void put(String uuid, @Nullable Bundle payload) {
+        if (uuid == null || payload == null) {
+            return;
+        }
+        evictExpired();
+        entries.put(uuid, new Entry(payload, SystemClock.elapsedRealtime() + PENDING_TTL_MS));
+        if (entries.size() > MAX_ENTRIES) {
+            Iterator<String> iterator = entries.keySet().iterator();
+            Log.w(TAG, "[CallPayloadStore] too many payloads, dropping the payload of: " + iterator.next());
+            iterator.remove();
+        }
+    }
+
+    @Nullable
+    public static synchronized Bundle get(String uuid) {
+        Entry entry = uuid != null ? entries.get(uuid) : null;
+        return entry != null && entry.expiresAt > SystemClock.elapsedRealtime() ? entry.payload : null;
+    }
+
+    // The payload of an active call is kept until the call ends
+    public static synchronized void onConnectionCreated(String uuid) {
+        Entry entry = uuid != null ? entries.get(uuid) : null;
+        if (entry != null) {
+            entry.expiresAt = Long.MAX_VALUE;
+        }
+    }
+
+    public static synchronized void remove(String uuid) {
+        if (uuid != null) {
+            entries.remove(uuid);
+        }
+    }
+
+    private static void evictExpired() {
+        long now = SystemClock.elapsedRealtime();
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().getValue().expiresAt <= now) {
+                iterator.remove();
+            }
+        }
+    }
+}
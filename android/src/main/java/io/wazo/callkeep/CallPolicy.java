@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2016-2019 The CallKeep Authors (see the AUTHORS file)
+ * SPDX-License-Identifier: ISC, MIT
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package io.wazo.callkeep;
+
+import android.telecom.Connection;
+import android.util.Log;
+import androidx.annotation.Nullable;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+
+/*
+ * Native arbitration between concurrent calls, configured with the `callPolicy` settings key:
+ * - `autoHold`: hold the other active calls when a call is answered or placed,
+ * - `maxConcurrentCalls`: reject calls over this limit (0 for no limit), incoming ones with BUSY before they ring.
+ * The settings are parsed once when they change, so decisions only read a few fields.
+ */
+public class CallPolicy {
+    public static final String DECISION_ACCEPT = "accept";
+    public static final String DECISION_REJECT_BUSY = "rejectBusy";
+    public static final String DECISION_REJECT_LIMIT = "rejectLimit";
+    public static final String DECISION_AUTO_HOLD = "autoHold";
+
+    private static final String TAG = "RNCallKeep";
+    private static final int MAX_RECORDED_DECISIONS = 50;
+
+    private static volatile boolean autoHold = false;
+    private static volatile int maxConcurrentCalls = 0;
+
+    private static final ArrayDeque<Decision> decisions = new ArrayDeque<>();
+    private static long acceptedCount = 0;
+    private static long rejectedCount = 0;
+    private static long autoHoldCount = 0;
+
+    static class Decision {
+        final String uuid;
+        final String decision;
+        final boolean outgoing;
+        final int concurrentCalls;
+        final long timestamp;
+
+        Decision(String uuid, String decision, boolean outgoing, int concurrentCalls) {
+            this.uuid = uuid;
+            this.decision = decision;
+            this.outgoing = outgoing;
+            this.concurrentCalls = concurrentCalls;
+            this.timestamp = System.currentTimeMillis();
+        }
+    }
+
+    public static void configure(@Nullable ReadableMap settings) {
+        ReadableMap policy = null;
+        try {
+            policy = settings != null && settings.hasKey("callPolicy") ? settings.getMap("callPolicy") : null;
+        } catch (Exception e) {
+            Log.w(TAG, "[CallPolicy] configure, can't read callPolicy settings: " + e.toString());
+        }
+
+        autoHold = policy != null && policy.hasKey("autoHold") && policy.getBoolean("autoHold");
+        maxConcurrentCalls = policy != null && policy.hasKey("maxConcurrentCalls") ? policy.getInt("maxConcurrentCalls") : 0;
+
+        Log.d(TAG, "[CallPolicy] configure, autoHold: " + autoHold + ", maxConcurrentCalls: " + maxConcurrentCalls);
+    }
+
+    public static boolean isAutoHoldEnabled() {
+        return autoHold;
+    }
+
+    /*
+     * Called before creating a connection, `currentCalls` doesn't include the new call yet.
+     */
+    public static String onCreateConnection(String uuid, boolean outgoing, Collection<VoiceConnection> currentCalls) {
+        int concurrentCalls = countLiveCalls(currentCalls);
+        String decision = DECISION_ACCEPT;
+
+        if (maxConcurrentCalls > 0 && concurrentCalls >= maxConcurrentCalls) {
+            decision = outgoing ? DECISION_REJECT_LIMIT : DECISION_REJECT_BUSY;
+        }
+
+        record(new Decision(uuid, decision, outgoing, concurrentCalls));
+        return decision;
+    }
+
+    /*
+     * Hold every other active call when `autoHold` is enabled. Calls of the same conference are left untouched.
+     */
+    public static void onCallActivated(VoiceConnection activated, Collection<VoiceConnection> currentCalls) {
+        if (!autoHold) {
+            return;
+        }
+
+        for (VoiceConnection connection : currentCalls) {
+            if (connection == activated || connection.getState() != Connection.STATE_ACTIVE) {
+                continue;
+            }
+            if (activated.getConference() != null && activated.getConference() == connection.getConference()) {
+                continue;
+            }
+            Log.d(TAG, "[CallPolicy] auto holding: " + connection.getCallUuid() + ", activated: " + activated.getCallUuid());
+            connection.onHold();
+            record(new Decision(connection.getCallUuid(), DECISION_AUTO_HOLD, false, currentCalls.size()));
+        }
+    }
+
+    public static synchronized WritableMap getDecisions() {
+        WritableArray list = Arguments.createArray();
+        for (Decision decision : decisions) {
+            WritableMap item = Arguments.createMap();
+            item.putString("callUUID", decision.uuid);
+            item.putString("decision", decision.decision);
+            item.putString("direction", decision.outgoing ? "outgoing" : "incoming");
+            item.putInt("concurrentCalls", decision.concurrentCalls);
+            item.putDouble("timestamp", decision.timestamp);
+            list.pushMap(item);
+        }
+
+        WritableMap result = Arguments.createMap();
+        result.putArray("decisions", list);
+        result.putDouble("accepted", acceptedCount);
+        result.putDouble("rejected", rejectedCount);
+        result.putDouble("autoHeld", autoHoldCount);
+        return result;
+    }
+
+    private static int countLiveCalls(Collection<VoiceConnection> currentCalls) {
+        int count = 0;
+        for (VoiceConnection connection : currentCalls) {
+            if (connection.getState() != Connection.STATE_DISCONNECTED) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static synchronized void record(Decision decision) {
+        switch (decision.decision) {
+            case DECISION_ACCEPT:
+                acceptedCount++;
+                break;
+            case DECISION_AUTO_HOLD:
+                autoHoldCount++;
+                break;
+            default:
+                rejectedCount++;
+                break;
+        }
+
+        decisions.addLast(decision);
+        if (decisions.size() > MAX_RECORDED_DECISIONS) {
+            decisions.removeFirst();
+        }
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright (c) 2016-2019 The CallKeep Authors (see the AUTHORS file)
+ * SPDX-License-Identifier: ISC, MIT
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package io.wazo.callkeep;
+
+import android.telecom.Connection;
+import androidx.annotation.Nullable;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/*
+ * Versioned view of the current connections, so JS can resynchronise after a reload
+ * with `getActiveCalls()` and then only poll the deltas with `getCallChangesSince(version)`.
+ * Every change bumps a global version, each call remembers the version of its last change.
+ * Versions restart with the process, so they come with an `epoch` identifying it: a cursor from another process gets a full snapshot.
+ */
+public class CallStateRegistry {
+    // Number of ended calls remembered to answer `getCallChangesSince`, older versions get a full snapshot.
+    private static final int MAX_REMOVED_CALLS = 100;
+
+    private static final String epoch = UUID.randomUUID().toString();
+    private static long version = 0;
+    private static long oldestRemovedVersion = 0;
+    private static final Map<String, CallState> calls = new LinkedHashMap<>();
+    private static final ArrayDeque<CallState> removedCalls = new ArrayDeque<>();
+
+    static class CallState {
+        final String uuid;
+        final boolean outgoing;
+        final long createdAt;
+        int state = Connection.STATE_INITIALIZING;
+        boolean muted = false;
+        String audioRoute = null;
+        long connectedAt = 0;
+        long endedAt = 0;
+        long updatedAt;
+        long version;
+
+        CallState(String uuid, boolean outgoing) {
+            this.uuid = uuid;
+            this.outgoing = outgoing;
+            this.createdAt = System.currentTimeMillis();
+            this.updatedAt = this.createdAt;
+        }
+
+        WritableMap toMap() {
+            WritableMap map = Arguments.createMap();
+            map.putString("callUUID", uuid);
+            map.putString("state", Connection.stateToString(state));
+            map.putInt("stateCode", state);
+            map.putBoolean("onHold", state == Connection.STATE_HOLDING);
+            map.putBoolean("muted", muted);
+            map.putString("audioRoute", audioRoute);
+            map.putString("direction", outgoing ? "outgoing" : "incoming");
+            map.putDouble("createdAt", createdAt);
+            map.putDouble("updatedAt", updatedAt);
+            if (connectedAt > 0) {
+                map.putDouble("connectedAt", connectedAt);
+            }
+            if (endedAt > 0) {
+                map.putDouble("endedAt", endedAt);
+            }
+            map.putDouble("version", version);
+            return map;
+        }
+    }
+
+    public static synchronized void onCreated(String uuid, boolean outgoing) {
+        if (uuid == null) {
+            return;
+        }
+        CallState call = new CallState(uuid, outgoing);
+        calls.put(uuid, call);
+        touch(call);
+    }
+
+    public static synchronized void onStateChanged(String uuid, int state) {
+        CallState call = uuid != null ? calls.get(uuid) : null;
+        if (call == null || call.state == state) {
+            return;
+        }
+        call.state = state;
+        if (state == Connection.STATE_ACTIVE && call.connectedAt == 0) {
+            call.connectedAt = System.currentTimeMillis();
+        }
+        touch(call);
+    }
+
+    public static synchronized void onAudioStateChanged(String uuid, boolean muted, String audioRoute) {
+        CallState call = uuid != null ? calls.get(uuid) : null;
+        if (call == null || (call.muted == muted && audioRoute != null && audioRoute.equals(call.audioRoute))) {
+            return;
+        }
+        call.muted = muted;
+        call.audioRoute = audioRoute;
+        touch(call);
+    }
+
+    public static synchronized CallState onRemoved(String uuid) {
+        CallState call = uuid != null ? calls.remove(uuid) : null;
+        if (call == null) {
+            return null;
+        }
+        call.state = Connection.STATE_DISCONNECTED;
+        call.endedAt = System.currentTimeMillis();
+        touch(call);
+
+        removedCalls.addLast(call);
+        while (removedCalls.size() > MAX_REMOVED_CALLS) {
+            oldestRemovedVersion = removedCalls.removeFirst().version;
+        }
+        return call;
+    }
+
+    public static synchronized long getVersion() {
+        return version;
+    }
+
+    public static synchronized WritableMap getActiveCalls() {
+        WritableArray list = Arguments.createArray();
+        for (CallState call : calls.values()) {
+            list.pushMap(call.toMap());
+        }
+
+        WritableMap result = Arguments.createMap();
+        result.putString("epoch", epoch);
+        result.putDouble("version", version);
+        result.putArray("calls", list);
+        return result;
+    }
+
+    public static synchronized WritableMap getChangesSince(long since, @Nullable String sinceEpoch) {
+        // A version from a previous process, or removed calls older than what we remember, can't be diffed.
+        if (!epoch.equals(sinceEpoch) || since < oldestRemovedVersion || since > version) {
+            WritableMap result = getActiveCalls();
+            result.putBoolean("full", true);
+            result.putArray("removed", Arguments.createArray());
+            return result;
+        }
+
+        WritableArray changed = Arguments.createArray();
+        for (CallState call : calls.values()) {
+            if (call.version > since) {
+                changed.pushMap(call.toMap());
+            }
+        }
+
+        WritableArray removed = Arguments.createArray();
+        Iterator<CallState> iterator = removedCalls.descendingIterator();
+        while (iterator.hasNext()) {
+            CallState call = iterator.next();
+            if (call.version <= since) {
+                break;
+            }
+            removed.pushMap(call.toMap());
+        }
+
+        WritableMap result = Arguments.createMap();
+        result.putString("epoch", epoch);
+        result.putDouble("version", version);
+        result.putBoolean("full", false);
+        result.putArray("calls", changed);
+        result.putArray("removed", removed);
+        return result;
+    }
+
+    private static void touch(CallState call) {
+        call.version = ++version;
+        call.updatedAt = System.currentTimeMillis();
+    }
+}
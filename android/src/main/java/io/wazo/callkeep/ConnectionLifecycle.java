@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2016-2019 The CallKeep Authors (see the AUTHORS file)
+ * SPDX-License-Identifier: ISC, MIT
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package io.wazo.callkeep;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.WritableMap;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+/*
+ * Lifecycle of a VoiceConnection: CREATED -> ANSWERED -> TERMINATING -> TERMINATED, or CREATED -> TERMINATING directly.
+ * Transitions are atomic, so a call answered or ended twice (eg: by Telecom and by JS) only runs once.
+ * Counters and timings of every transition, and of ignored duplicates, are shared by all connections.
+ */
+public class ConnectionLifecycle {
+    public enum State { CREATED, ANSWERED, TERMINATING, TERMINATED }
+
+    private static final String TAG = "RNCallKeep";
+
+    private static final Map<String, long[]> transitions = new HashMap<>();
+    private static final Map<String, Long> duplicates = new HashMap<>();
+    private static long invariantViolations = 0;
+
+    private final AtomicReference<State> state = new AtomicReference<>(State.CREATED);
+    private final String uuid;
+    private volatile long enteredAt = SystemClock.elapsedRealtime();
+    // Whether the slice of the current state was started, `trace` can be toggled during the call
+    private volatile boolean traced;
+
+    ConnectionLifecycle(String uuid) {
+        this.uuid = uuid;
+        traced = CallKeepTrace.beginAsyncSection(State.CREATED.name(), uuid);
+    }
+
+    public State getState() {
+        return state.get();
+    }
+
+    public boolean answer(String trigger) {
+        if (transition(State.CREATED, State.ANSWERED, trigger)) {
+            return true;
+        }
+        recordDuplicate(trigger);
+        return false;
+    }
+
+    /*
+     * Returns false when the connection is already being torn down, the caller must then do nothing.
+     */
+    public boolean beginTeardown(String trigger) {
+        if (transition(State.CREATED, State.TERMINATING, trigger) || transition(State.ANSWERED, State.TERMINATING, trigger)) {
+            return true;
+        }
+        recordDuplicate(trigger);
+        return false;
+    }
+
+    public void endTeardown(String trigger, boolean stillRegistered) {
+        if (stillRegistered) {
+            invariantViolation("still registered after teardown");
+        }
+        if (!transition(State.TERMINATING, State.TERMINATED, trigger)) {
+            invariantViolation("endTeardown from " + state.get());
+        }
+    }
+
+    private boolean transition(State from, State to, String trigger) {
+        if (!state.compareAndSet(from, to)) {
+            return false;
+        }
+
+        long now = SystemClock.elapsedRealtime();
+        long duration = now - enteredAt;
+        enteredAt = now;
+        recordTransition(from + "->" + to, duration);
+        // One async slice per state of the call, eg: CREATED is the ringing or dialing time
+        CallKeepTrace.endAsyncSection(from.name(), uuid, traced);
+        traced = to != State.TERMINATED && CallKeepTrace.beginAsyncSection(to.name(), uuid);
+        Log.d(TAG, "[ConnectionLifecycle] " + from + " -> " + to + " (" + trigger + ") after " + duration + " ms, uuid: " + uuid);
+        return true;
+    }
+
+    private void recordDuplicate(String trigger) {
+        Log.w(TAG, "[ConnectionLifecycle] " + trigger + " ignored, connection is " + state.get() + ", uuid: " + uuid);
+        synchronized (ConnectionLifecycle.class) {
+            Long count = duplicates.get(trigger);
+            duplicates.put(trigger, count == null ? 1 : count + 1);
+        }
+    }
+
+    private void invariantViolation(String message) {
+        Log.e(TAG, "[ConnectionLifecycle] invariant violated: " + message + ", uuid: " + uuid);
+        synchronized (ConnectionLifecycle.class) {
+            invariantViolations++;
+        }
+    }
+
+    private static synchronized void recordTransition(String name, long duration) {
+        // count, total duration, max duration
+        long[] stats = transitions.get(name);
+        if (stats == null) {
+            stats = new long[3];
+            transitions.put(name, stats);
+        }
+        stats[0]++;
+        stats[1] += duration;
+        stats[2] = Math.max(stats[2], duration);
+    }
+
+    public static synchronized WritableMap getStats() {
+        WritableMap transitionsMap = Arguments.createMap();
+        for (Map.Entry<String, long[]> entry : transitions.entrySet()) {
+            long[] stats = entry.getValue();
+            WritableMap item = Arguments.createMap();
+            item.putDouble("count", stats[0]);
+            item.putDouble("averageMs", (double) stats[1] / stats[0]);
+            item.putDouble("maxMs", stats[2]);
+            transitionsMap.putMap(entry.getKey(), item);
+        }
+
+        WritableMap duplicatesMap = Arguments.createMap();
+        for (Map.Entry<String, Long> entry : duplicates.entrySet()) {
+            duplicatesMap.putDouble(entry.getKey(), entry.getValue());
+        }
+
+        WritableMap result = Arguments.createMap();
+        result.putMap("transitions", transitionsMap);
+        result.putMap("duplicates", duplicatesMap);
+        result.putDouble("invariantViolations", invariantViolations);
+        return result;
+    }
+}
@@ -3,8 +3,11 @@ package io.wazo.callkeep;
 public class Constants {
     public static final String ACTION_ANSWER_CALL = "ACTION_ANSWER_CALL";
     public static final String ACTION_AUDIO_SESSION = "ACTION_AUDIO_SESSION";
+    public static final String ACTION_AUDIO_SESSION_DEACTIVATED = "ACTION_AUDIO_SESSION_DEACTIVATED";
     public static final String ACTION_CHECK_REACHABILITY = "ACTION_CHECK_REACHABILITY";
     public static final String ACTION_DTMF_TONE = "ACTION_DTMF_TONE";
+    public static final String ACTION_DTMF_SEQUENCE_PROGRESS = "ACTION_DTMF_SEQUENCE_PROGRESS";
+    public static final String ACTION_DTMF_SEQUENCE_COMPLETED = "ACTION_DTMF_SEQUENCE_COMPLETED";
     public static final String ACTION_END_CALL = "ACTION_END_CALL";
     public static final String ACTION_HOLD_CALL = "ACTION_HOLD_CALL";
     public static final String ACTION_MUTE_CALL = "ACTION_MUTE_CALL";
@@ -16,6 +19,7 @@ public class Constants {
     public static final String ACTION_ON_SILENCE_INCOMING_CALL = "ACTION_ON_SILENCE_INCOMING_CALL";
     public static final String ACTION_ON_CREATE_CONNECTION_FAILED = "ACTION_ON_CREATE_CONNECTION_FAILED";
     public static final String ACTION_DID_CHANGE_AUDIO_ROUTE = "ACTION_DID_CHANGE_AUDIO_ROUTE";
+    public static final String ACTION_CONFERENCE_CHANGED = "ACTION_CONFERENCE_CHANGED";
 
 
     public static final String EXTRA_CALL_NUMBER = "EXTRA_CALL_NUMBER";
@@ -24,6 +28,12 @@ public class Constants {
     public static final String EXTRA_CALLER_NAME = "EXTRA_CALLER_NAME";
     public static final String EXTRA_HAS_VIDEO = "EXTRA_HAS_VIDEO";
     public static final String EXTRA_PAYLOAD = "EXTRA_PAYLOAD";
+    public static final String EXTRA_CONFERENCE_ID = "EXTRA_CONFERENCE_ID";
+    public static final String EXTRA_CONFERENCE_EVENT = "EXTRA_CONFERENCE_EVENT";
+    public static final String EXTRA_CONFERENCE_MEMBER_COUNT = "EXTRA_CONFERENCE_MEMBER_COUNT";
+    public static final String EXTRA_CONFERENCE_VERSION = "EXTRA_CONFERENCE_VERSION";
+    public static final String EXTRA_CONFERENCE_HOLD = "EXTRA_CONFERENCE_HOLD";
+    public static final String EXTRA_CONFERENCE_MUTED = "EXTRA_CONFERENCE_MUTED";
     // Can't use telecom.EXTRA_DISABLE_ADD_CALL ...
     public static final String EXTRA_DISABLE_ADD_CALL = "android.telecom.extra.DISABLE_ADD_CALL";
 
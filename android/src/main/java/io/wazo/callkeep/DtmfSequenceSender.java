@@ -0,0 +1,241 @@
+/*
+ * Copyright (c) 2016-2019 The CallKeep Authors (see the AUTHORS file)
+ * SPDX-License-Identifier: ISC, MIT
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package io.wazo.callkeep;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.util.ArrayDeque;
+
+/*
+ * Paces a queued DTMF sequence for one connection on the main looper.
+ * The audio of the call is handled by the app, so each digit is handed to it with `onDtmfDigit` when its turn comes,
+ * to be inserted in its media stream. With `waitForAck`, the next digit waits for `acknowledge` (or the sequence is
+ * cancelled after `ACK_TIMEOUT_MS`), so `sent` only counts the digits the app confirmed.
+ * Sent digits are reported to the listener in batches. All the state is only touched on the main looper, the public methods post there.
+ */
+public class DtmfSequenceSender {
+    private static final String TAG = "RNCallKeep";
+
+    // Same duration as the pause character used by the native dialer
+    public static final int PAUSE_DURATION_MS = 2000;
+    public static final int DEFAULT_TONE_DURATION_MS = 160;
+    public static final int DEFAULT_INTER_TONE_GAP_MS = 80;
+    public static final int ACK_TIMEOUT_MS = 5000;
+
+    public interface Listener {
+        void onDtmfDigit(char digit, int toneDuration, int gapDuration);
+
+        void onDtmfProgress(String digits, int sent, int total);
+
+        void onDtmfCompleted(String digits, int sent, int total, boolean cancelled);
+    }
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final ArrayDeque<Character> queue = new ArrayDeque<>();
+    private final StringBuilder pendingDigits = new StringBuilder();
+    private final StringBuilder sentDigits = new StringBuilder();
+    private final Listener listener;
+
+    private int toneDuration = DEFAULT_TONE_DURATION_MS;
+    private int gapDuration = DEFAULT_INTER_TONE_GAP_MS;
+    private int batchSize = 0;
+    private boolean waitForAck = false;
+    private int sent = 0;
+    private int total = 0;
+    private boolean running = false;
+    // Digit handed to the app, waiting for `acknowledge`
+    private Character awaitedDigit = null;
+
+    private final Runnable nextTone = new Runnable() {
+        @Override
+        public void run() {
+            playNext();
+        }
+    };
+
+    private final Runnable ackTimeout = new Runnable() {
+        @Override
+        public void run() {
+            Log.w(TAG, "[DtmfSequenceSender] digit not acknowledged after " + ACK_TIMEOUT_MS + " ms, cancelling the sequence");
+            awaitedDigit = null;
+            queue.clear();
+            finish(true);
+        }
+    };
+
+    DtmfSequenceSender(Listener listener) {
+        this.listener = listener;
+    }
+
+    public static boolean isValidSequence(String digits) {
+        if (digits == null || digits.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < digits.length(); i++) {
+            if (!isValidCharacter(digits.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isValidCharacter(char c) {
+        return (c >= '0' && c <= '9') || c == '*' || c == '#' || c == ',' || (c >= 'A' && c <= 'D');
+    }
+
+    /*
+     * Queue `digits` after any sequence already running. Settings of the latest call apply to the whole queue.
+     * `batchSize` is the number of digits grouped in a progress event, 0 only reports completion.
+     */
+    public void enqueue(final String digits, final int toneDuration, final int gapDuration, final int batchSize, final boolean waitForAck) {
+        if (!isValidSequence(digits)) {
+            Log.w(TAG, "[DtmfSequenceSender] enqueue ignored, invalid sequence: " + digits);
+            return;
+        }
+
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                enqueueOnLooper(digits, toneDuration, gapDuration, batchSize, waitForAck);
+            }
+        });
+    }
+
+    private void enqueueOnLooper(String digits, int toneDuration, int gapDuration, int batchSize, boolean waitForAck) {
+        this.toneDuration = toneDuration > 0 ? toneDuration : DEFAULT_TONE_DURATION_MS;
+        this.gapDuration = gapDuration >= 0 ? gapDuration : DEFAULT_INTER_TONE_GAP_MS;
+        this.batchSize = Math.max(batchSize, 0);
+        this.waitForAck = waitForAck;
+
+        for (int i = 0; i < digits.length(); i++) {
+            queue.add(digits.charAt(i));
+        }
+        total += digits.length();
+
+        Log.d(TAG, "[DtmfSequenceSender] enqueue, digits: " + digits + ", queued: " + queue.size() + ", running: " + running);
+        if (!running) {
+            running = true;
+            playNext();
+        }
+    }
+
+    // The app inserted the last digit handed with `onDtmfDigit` in its media stream
+    public void acknowledge() {
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                acknowledgeOnLooper();
+            }
+        });
+    }
+
+    private void acknowledgeOnLooper() {
+        if (awaitedDigit == null) {
+            return;
+        }
+        handler.removeCallbacks(ackTimeout);
+        onDigitSent(awaitedDigit);
+        awaitedDigit = null;
+        handler.postDelayed(nextTone, gapDuration);
+    }
+
+    public void cancel() {
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                cancelOnLooper();
+            }
+        });
+    }
+
+    private void cancelOnLooper() {
+        if (!running) {
+            return;
+        }
+        Log.d(TAG, "[DtmfSequenceSender] cancel, remaining: " + queue.size());
+        handler.removeCallbacks(nextTone);
+        handler.removeCallbacks(ackTimeout);
+        awaitedDigit = null;
+        queue.clear();
+        finish(true);
+    }
+
+    public int getToneDuration() {
+        return toneDuration;
+    }
+
+    public int getGapDuration() {
+        return gapDuration;
+    }
+
+    private void playNext() {
+        Character digit = queue.poll();
+        if (digit == null) {
+            finish(false);
+            return;
+        }
+
+        if (digit == ',') {
+            sent++;
+            sentDigits.append(digit);
+            handler.postDelayed(nextTone, PAUSE_DURATION_MS);
+            return;
+        }
+
+        listener.onDtmfDigit(digit, toneDuration, gapDuration);
+        if (waitForAck) {
+            awaitedDigit = digit;
+            handler.postDelayed(ackTimeout, ACK_TIMEOUT_MS);
+            return;
+        }
+        onDigitSent(digit);
+        handler.postDelayed(nextTone, toneDuration + gapDuration);
+    }
+
+    private void onDigitSent(char digit) {
+        sent++;
+        sentDigits.append(digit);
+        pendingDigits.append(digit);
+        if (batchSize > 0 && pendingDigits.length() >= batchSize) {
+            flushProgress();
+        }
+    }
+
+    private void flushProgress() {
+        if (pendingDigits.length() == 0) {
+            return;
+        }
+        listener.onDtmfProgress(pendingDigits.toString(), sent, total);
+        pendingDigits.setLength(0);
+    }
+
+    private void finish(boolean cancelled) {
+        if (batchSize > 0) {
+            flushProgress();
+        }
+        pendingDigits.setLength(0);
+        listener.onDtmfCompleted(sentDigits.toString(), sent, total, cancelled);
+        sentDigits.setLength(0);
+
+        running = false;
+        sent = 0;
+        total = 0;
+    }
+}
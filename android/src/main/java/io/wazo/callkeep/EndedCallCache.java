@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2016-2019 The CallKeep Authors (see the AUTHORS file)
+ * SPDX-License-Identifier: ISC, MIT
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package io.wazo.callkeep;
+
+import android.os.SystemClock;
+import android.telecom.DisconnectCause;
+import androidx.annotation.Nullable;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.WritableMap;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/*
+ * Summaries of the last ended calls, so late operations on their UUID (eg: `endCall` after a remote hangup)
+ * are recognized instead of failing. Bounded by `MAX_ENTRIES` and `TTL_MS`.
+ */
+public class EndedCallCache {
+    private static final int MAX_ENTRIES = 50;
+    private static final long TTL_MS = 30 * 60 * 1000;
+
+    private static class Summary {
+        final HashMap<String, String> attributes;
+        final boolean outgoing;
+        final String cause;
+        final long createdAt;
+        final long connectedAt;
+        final long endedAt;
+        final long cachedAt = SystemClock.elapsedRealtime();
+
+        Summary(HashMap<String, String> attributes, boolean outgoing, String cause, long createdAt, long connectedAt, long endedAt) {
+            this.attributes = attributes;
+            this.outgoing = outgoing;
+            this.cause = cause;
+            this.createdAt = createdAt;
+            this.connectedAt = connectedAt;
+            this.endedAt = endedAt;
+        }
+    }
+
+    private static final LinkedHashMap<String, Summary> summaries = new LinkedHashMap<>();
+
+    public static synchronized void onCallEnded(@Nullable CallStateRegistry.CallState call, @Nullable VoiceConnection connection) {
+        if (call == null) {
+            return;
+        }
+        DisconnectCause cause = connection != null ? connection.getDisconnectCause() : null;
+        HashMap<String, String> attributes = connection != null ? connection.getAttributes() : new HashMap<String, String>();
+
+        evictExpired();
+        summaries.remove(call.uuid);
+        summaries.put(call.uuid, new Summary(attributes, call.outgoing, CallHistoryStore.causeToString(cause), call.createdAt, call.connectedAt, call.endedAt));
+        if (summaries.size() > MAX_ENTRIES) {
+            Iterator<String> iterator = summaries.keySet().iterator();
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    public static synchronized boolean contains(String uuid) {
+        return getSummary(uuid) != null;
+    }
+
+    @Nullable
+    public static synchronized WritableMap get(String uuid) {
+        Summary summary = getSummary(uuid);
+        if (summary == null) {
+            return null;
+        }
+
+        WritableMap attributes = Arguments.createMap();
+        for (Map.Entry<String, String> entry : summary.attributes.entrySet()) {
+            attributes.putString(entry.getKey(), entry.getValue());
+        }
+
+        WritableMap result = Arguments.createMap();
+        result.putString("callUUID", uuid);
+        result.putString("direction", summary.outgoing ? "outgoing" : "incoming");
+        result.putString("cause", summary.cause);
+        result.putDouble("createdAt", summary.createdAt);
+        if (summary.connectedAt > 0) {
+            result.putDouble("connectedAt", summary.connectedAt);
+            result.putDouble("duration", summary.endedAt - summary.connectedAt);
+        }
+        result.putDouble("endedAt", summary.endedAt);
+        result.putMap("attributes", attributes);
+        return result;
+    }
+
+    @Nullable
+    private static Summary getSummary(String uuid) {
+        if (uuid == null) {
+            return null;
+        }
+        evictExpired();
+        return summaries.get(uuid);
+    }
+
+    // Oldest first, stops at the first one still valid
+    private static void evictExpired() {
+        long now = SystemClock.elapsedRealtime();
+        Iterator<Summary> iterator = summaries.values().iterator();
+        while (iterator.hasNext() && now - iterator.next().cachedAt > TTL_MS) {
+            iterator.remove();
+        }
+    }
+}
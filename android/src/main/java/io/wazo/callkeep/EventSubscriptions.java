@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2016-2019 The CallKeep Authors (see the AUTHORS file)
+ * SPDX-License-Identifier: ISC, MIT
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package io.wazo.callkeep;
+
+import android.util.Log;
+import androidx.annotation.Nullable;
+
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.ReadableType;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/*
+ * JS listeners by event name, counted from `addListener` (NativeEventEmitter) and `removeEventListeners` (index.js).
+ * Once JS has added a listener, events without listener are not built nor emitted,
+ * except the `alwaysQueuedEvents` which are kept by the module until a listener for them is added.
+ */
+public class EventSubscriptions {
+    private static final String TAG = "RNCallKeep";
+
+    private static final Set<String> DEFAULT_ALWAYS_QUEUED_EVENTS = new HashSet<>(Arrays.asList(
+        "RNCallKeepDidReceiveStartCallAction",
+        "RNCallKeepPerformAnswerCallAction",
+        "RNCallKeepPerformEndCallAction",
+        "RNCallKeepDidActivateAudioSession",
+        "RNCallKeepDidDisplayIncomingCall",
+        "RNCallKeepShowIncomingCallUi",
+        "RNCallKeepOnIncomingConnectionFailed",
+        "RNCallKeepCheckReachability",
+        "RNCallKeepDidFindOrphanedCall",
+        "RNCallKeepDidReceiveWakeCalls"
+    ));
+
+    private static final Map<String, Integer> counts = new HashMap<>();
+    // Old React Native versions don't call `addListener`: every event is then emitted
+    private static boolean tracking = false;
+    private static volatile Set<String> alwaysQueuedEvents = DEFAULT_ALWAYS_QUEUED_EVENTS;
+
+    public static void configure(@Nullable ReadableMap settings) {
+        Set<String> events = DEFAULT_ALWAYS_QUEUED_EVENTS;
+        try {
+            ReadableArray list = settings != null && settings.hasKey("alwaysQueuedEvents") ? settings.getArray("alwaysQueuedEvents") : null;
+            if (list != null) {
+                events = new HashSet<>();
+                for (int i = 0; i < list.size(); i++) {
+                    if (list.getType(i) == ReadableType.String) {
+                        events.add(list.getString(i));
+                    }
+                }
+            }
+        } catch (Exception e) {
+            Log.w(TAG, "[EventSubscriptions] configure, can't read alwaysQueuedEvents settings: " + e.toString());
+        }
+        alwaysQueuedEvents = Collections.unmodifiableSet(events);
+    }
+
+    public static synchronized void onListenerAdded(String eventName) {
+        tracking = true;
+        Integer count = counts.get(eventName);
+        counts.put(eventName, count == null ? 1 : count + 1);
+    }
+
+    public static synchronized void onListenersRemoved(String eventName, int removed) {
+        Integer count = counts.get(eventName);
+        if (count == null) {
+            return;
+        }
+        if (count - removed > 0) {
+            counts.put(eventName, count - removed);
+        } else {
+            counts.remove(eventName);
+        }
+    }
+
+    // Listeners belong to the JS runtime, forget them with it
+    public static synchronized void reset() {
+        counts.clear();
+        tracking = false;
+    }
+
+    public static synchronized boolean isObserved(String eventName) {
+        return !tracking || counts.containsKey(eventName);
+    }
+
+    public static boolean isAlwaysQueued(String eventName) {
+        return alwaysQueuedEvents.contains(eventName);
+    }
+}
@@ -0,0 +1,278 @@
+/*
+ * Copyright (c) 2016-2019 The CallKeep Authors (see the AUTHORS file)
+ * SPDX-License-Identifier: ISC, MIT
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package io.wazo.callkeep;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.SystemClock;
+import android.telecom.Connection;
+import android.util.Log;
+import androidx.annotation.Nullable;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.WritableMap;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Token bucket in front of `addNewIncomingCall`, configured with the `incomingCallAdmission` settings key.
+ * Up to `burst` calls are admitted at once, then `ratePerSecond`. Calls over the limit are handled by `overflow`:
+ * - `rejectBusy`: rejected right away,
+ * - `queue`: admitted later when a token is available, or rejected after `maxQueueWaitMs`,
+ * - `dropOldestRinging`: the oldest ringing call is rejected to make room for the new one.
+ * Decisions are taken under the lock, the callbacks (binder calls to Telecom) run after releasing it.
+ */
+public class IncomingCallAdmission {
+    public static final String OVERFLOW_REJECT_BUSY = "rejectBusy";
+    public static final String OVERFLOW_QUEUE = "queue";
+    public static final String OVERFLOW_DROP_OLDEST_RINGING = "dropOldestRinging";
+
+    private static final String TAG = "RNCallKeep";
+    private static final int DEFAULT_MAX_QUEUE_SIZE = 10;
+    private static final int DEFAULT_MAX_QUEUE_WAIT_MS = 10000;
+
+    private static boolean enabled = false;
+    private static double burst = 1;
+    private static double ratePerSecond = 1;
+    private static String overflow = OVERFLOW_REJECT_BUSY;
+    private static int maxQueueSize = DEFAULT_MAX_QUEUE_SIZE;
+    private static int maxQueueWaitMs = DEFAULT_MAX_QUEUE_WAIT_MS;
+
+    private static double tokens = 0;
+    private static long lastRefill = 0;
+
+    private static final ArrayDeque<PendingCall> queue = new ArrayDeque<>();
+    // Queued calls are admitted from their own thread, never from the main thread
+    private static Handler handler;
+    private static boolean drainScheduled = false;
+
+    private static long admittedCount = 0;
+    private static long rejectedCount = 0;
+    private static long queuedCount = 0;
+    private static long droppedCount = 0;
+
+    private static class PendingCall {
+        final String uuid;
+        final Runnable admit;
+        final Runnable reject;
+        final long queuedAt;
+
+        PendingCall(String uuid, Runnable admit, Runnable reject, long queuedAt) {
+            this.uuid = uuid;
+            this.admit = admit;
+            this.reject = reject;
+            this.queuedAt = queuedAt;
+        }
+    }
+
+    static final Runnable drain = new Runnable() {
+        @Override
+        public void run() {
+            List<Runnable> callbacks = new ArrayList<>();
+            drainQueue(callbacks);
+            runAll(callbacks);
+        }
+    };
+
+    public static synchronized void configure(@Nullable ReadableMap settings) {
+        ReadableMap config = null;
+        try {
+            config = settings != null && settings.hasKey("incomingCallAdmission") ? settings.getMap("incomingCallAdmission") : null;
+        } catch (Exception e) {
+            Log.w(TAG, "[IncomingCallAdmission] configure, can't read incomingCallAdmission settings: " + e.toString());
+        }
+
+        boolean wasEnabled = enabled;
+        enabled = config != null;
+        if (config != null) {
+            burst = config.hasKey("burst") ? Math.max(config.getDouble("burst"), 1) : 1;
+            ratePerSecond = config.hasKey("ratePerSecond") ? config.getDouble("ratePerSecond") : 1;
+            overflow = config.hasKey("overflow") ? config.getString("overflow") : OVERFLOW_REJECT_BUSY;
+            maxQueueSize = config.hasKey("maxQueueSize") ? config.getInt("maxQueueSize") : DEFAULT_MAX_QUEUE_SIZE;
+            maxQueueWaitMs = config.hasKey("maxQueueWaitMs") ? config.getInt("maxQueueWaitMs") : DEFAULT_MAX_QUEUE_WAIT_MS;
+            // Settings are stored again on each change, don't refill the bucket every time
+            if (!wasEnabled) {
+                tokens = burst;
+                lastRefill = SystemClock.elapsedRealtime();
+            }
+            tokens = Math.min(tokens, burst);
+        }
+
+        Log.d(TAG, "[IncomingCallAdmission] configure, enabled: " + enabled + ", burst: " + burst + ", ratePerSecond: " + ratePerSecond + ", overflow: " + overflow);
+    }
+
+    /*
+     * Run `admit` when the call is accepted (now or later when queued), `reject` otherwise.
+     */
+    public static void submit(String uuid, Runnable admit, Runnable reject) {
+        List<Runnable> callbacks = new ArrayList<>();
+        decide(uuid, admit, reject, callbacks);
+        runAll(callbacks);
+    }
+
+    private static synchronized void decide(String uuid, Runnable admit, Runnable reject, List<Runnable> callbacks) {
+        if (!enabled) {
+            callbacks.add(admit);
+            return;
+        }
+
+        refill();
+        if (queue.isEmpty() && tokens >= 1) {
+            tokens--;
+            admittedCount++;
+            callbacks.add(admit);
+            return;
+        }
+
+        switch (overflow) {
+            case OVERFLOW_QUEUE:
+                if (queue.size() >= maxQueueSize) {
+                    Log.w(TAG, "[IncomingCallAdmission] queue full, rejecting uuid: " + uuid);
+                    rejectedCount++;
+                    callbacks.add(reject);
+                    return;
+                }
+                Log.d(TAG, "[IncomingCallAdmission] queuing uuid: " + uuid + ", queue size: " + queue.size());
+                queue.addLast(new PendingCall(uuid, admit, reject, SystemClock.elapsedRealtime()));
+                queuedCount++;
+                scheduleDrain();
+                return;
+            case OVERFLOW_DROP_OLDEST_RINGING:
+                final VoiceConnection oldest = findOldestRingingConnection();
+                if (oldest != null) {
+                    Log.w(TAG, "[IncomingCallAdmission] dropping oldest ringing call: " + oldest.getCallUuid() + " for uuid: " + uuid);
+                    droppedCount++;
+                    callbacks.add(new Runnable() {
+                        @Override
+                        public void run() {
+                            oldest.onReject();
+                        }
+                    });
+                    admittedCount++;
+                    callbacks.add(admit);
+                    return;
+                }
+                rejectedCount++;
+                callbacks.add(reject);
+                return;
+            default:
+                Log.w(TAG, "[IncomingCallAdmission] rate limited, rejecting uuid: " + uuid);
+                rejectedCount++;
+                callbacks.add(reject);
+        }
+    }
+
+    public static synchronized WritableMap getStats() {
+        WritableMap stats = Arguments.createMap();
+        stats.putBoolean("enabled", enabled);
+        stats.putDouble("admitted", admittedCount);
+        stats.putDouble("rejected", rejectedCount);
+        stats.putDouble("queued", queuedCount);
+        stats.putDouble("droppedRinging", droppedCount);
+        stats.putInt("queueDepth", queue.size());
+        stats.putDouble("tokens", tokens);
+        return stats;
+    }
+
+    static synchronized int getQueueDepth() {
+        return queue.size();
+    }
+
+    // For tests
+    static synchronized void reset() {
+        enabled = false;
+        queue.clear();
+        tokens = 0;
+        drainScheduled = false;
+        admittedCount = 0;
+        rejectedCount = 0;
+        queuedCount = 0;
+        droppedCount = 0;
+    }
+
+    private static synchronized void drainQueue(List<Runnable> callbacks) {
+        drainScheduled = false;
+        refill();
+
+        long now = SystemClock.elapsedRealtime();
+        while (!queue.isEmpty()) {
+            PendingCall pending = queue.peekFirst();
+            if (now - pending.queuedAt > maxQueueWaitMs) {
+                Log.w(TAG, "[IncomingCallAdmission] queued call expired, uuid: " + pending.uuid);
+                queue.removeFirst();
+                rejectedCount++;
+                callbacks.add(pending.reject);
+                continue;
+            }
+            if (tokens < 1) {
+                break;
+            }
+            queue.removeFirst();
+            tokens--;
+            admittedCount++;
+            callbacks.add(pending.admit);
+        }
+
+        if (!queue.isEmpty()) {
+            scheduleDrain();
+        }
+    }
+
+    private static void runAll(List<Runnable> callbacks) {
+        for (Runnable callback : callbacks) {
+            callback.run();
+        }
+    }
+
+    private static void scheduleDrain() {
+        if (drainScheduled) {
+            return;
+        }
+        drainScheduled = true;
+        long delay = ratePerSecond > 0 ? (long) Math.ceil((1 - Math.min(tokens, 1)) * 1000 / ratePerSecond) : maxQueueWaitMs;
+        getHandler().postDelayed(drain, Math.min(Math.max(delay, 1), maxQueueWaitMs));
+    }
+
+    private static Handler getHandler() {
+        if (handler == null) {
+            HandlerThread thread = new HandlerThread("RNCallKeepAdmission");
+            thread.start();
+            handler = new Handler(thread.getLooper());
+        }
+        return handler;
+    }
+
+    private static void refill() {
+        long now = SystemClock.elapsedRealtime();
+        tokens = Math.min(burst, tokens + (now - lastRefill) * ratePerSecond / 1000);
+        lastRefill = now;
+    }
+
+    // `currentConnections` keeps the creation order
+    private static VoiceConnection findOldestRingingConnection() {
+        for (VoiceConnection connection : VoiceConnectionService.currentConnections.values()) {
+            if (connection.getState() == Connection.STATE_RINGING) {
+                return connection;
+            }
+        }
+        return null;
+    }
+}
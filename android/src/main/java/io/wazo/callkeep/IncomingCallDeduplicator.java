@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2016-2019 The CallKeep Authors (see the AUTHORS file)
+ * SPDX-License-Identifier: ISC, MIT
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package io.wazo.callkeep;
+
+import android.os.SystemClock;
+import android.util.Log;
+import androidx.annotation.Nullable;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.WritableMap;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/*
+ * Drops incoming calls already reported in the last `windowMs`, eg: when the same invite
+ * comes from both a push and a socket. Configured with the `incomingCallDeduplication` settings key, disabled when not set.
+ * A call is remembered as soon as it is accepted, so a copy arriving while it waits for admission is dropped too.
+ * It is forgotten with `onDropped` when it never reaches Telecom, so it can be reported again.
+ * Calls are matched by uuid, and optionally by caller (`matchCaller`) when the uuids differ.
+ */
+public class IncomingCallDeduplicator {
+    private static final String TAG = "RNCallKeep";
+    private static final long DEFAULT_WINDOW_MS = 30000;
+    private static final int DEFAULT_MAX_ENTRIES = 64;
+
+    private static boolean enabled = false;
+    private static long windowMs = DEFAULT_WINDOW_MS;
+    private static int maxEntries = DEFAULT_MAX_ENTRIES;
+    private static boolean matchCaller = false;
+
+    // Insertion ordered, so the oldest entries are always first
+    private static final LinkedHashMap<String, Long> seenUuids = new LinkedHashMap<>();
+    private static final LinkedHashMap<String, Long> seenCallers = new LinkedHashMap<>();
+
+    private static long duplicatesByUuid = 0;
+    private static long duplicatesByCaller = 0;
+
+    public static synchronized void configure(@Nullable ReadableMap settings) {
+        ReadableMap config = null;
+        try {
+            config = settings != null && settings.hasKey("incomingCallDeduplication") ? settings.getMap("incomingCallDeduplication") : null;
+        } catch (Exception e) {
+            Log.w(TAG, "[IncomingCallDeduplicator] configure, can't read incomingCallDeduplication settings: " + e.toString());
+        }
+
+        enabled = config != null && (!config.hasKey("enabled") || config.getBoolean("enabled"));
+        windowMs = config != null && config.hasKey("windowMs") ? config.getInt("windowMs") : DEFAULT_WINDOW_MS;
+        maxEntries = config != null && config.hasKey("maxEntries") ? Math.max(config.getInt("maxEntries"), 1) : DEFAULT_MAX_ENTRIES;
+        matchCaller = config != null && config.hasKey("matchCaller") && config.getBoolean("matchCaller");
+
+        Log.d(TAG, "[IncomingCallDeduplicator] configure, enabled: " + enabled + ", windowMs: " + windowMs + ", maxEntries: " + maxEntries + ", matchCaller: " + matchCaller);
+    }
+
+    /*
+     * Returns true when the call was already accepted in the window, otherwise remembers it.
+     */
+    public static synchronized boolean isDuplicate(String uuid, @Nullable String number, @Nullable String callerName) {
+        if (!enabled) {
+            return false;
+        }
+
+        long now = SystemClock.elapsedRealtime();
+        evictExpired(seenUuids, now);
+        evictExpired(seenCallers, now);
+
+        if (uuid != null && (seenUuids.containsKey(uuid) || VoiceConnectionService.currentConnections.containsKey(uuid))) {
+            duplicatesByUuid++;
+            Log.w(TAG, "[IncomingCallDeduplicator] duplicate incoming call dropped, uuid: " + uuid);
+            return true;
+        }
+
+        String callerKey = getCallerKey(number, callerName);
+        if (callerKey != null && seenCallers.containsKey(callerKey)) {
+            duplicatesByCaller++;
+            Log.w(TAG, "[IncomingCallDeduplicator] duplicate incoming call dropped, same caller: " + number + ", uuid: " + uuid);
+            return true;
+        }
+
+        if (uuid != null) {
+            remember(seenUuids, uuid, now);
+        }
+        if (callerKey != null) {
+            remember(seenCallers, callerKey, now);
+        }
+        return false;
+    }
+
+    /*
+     * Forgets a call accepted by `isDuplicate` that was not handed to Telecom, eg: rejected by the admission or without phone account.
+     */
+    public static synchronized void onDropped(String uuid, @Nullable String number, @Nullable String callerName) {
+        if (uuid != null) {
+            seenUuids.remove(uuid);
+        }
+        String callerKey = getCallerKey(number, callerName);
+        if (callerKey != null) {
+            seenCallers.remove(callerKey);
+        }
+    }
+
+    // For tests
+    static synchronized void reset() {
+        seenUuids.clear();
+        seenCallers.clear();
+        duplicatesByUuid = 0;
+        duplicatesByCaller = 0;
+    }
+
+    public static synchronized WritableMap getStats() {
+        WritableMap stats = Arguments.createMap();
+        stats.putDouble("duplicates", duplicatesByUuid + duplicatesByCaller);
+        stats.putDouble("duplicatesByUuid", duplicatesByUuid);
+        stats.putDouble("duplicatesByCaller", duplicatesByCaller);
+        stats.putInt("tracked", seenUuids.size());
+        return stats;
+    }
+
+    @Nullable
+    private static String getCallerKey(@Nullable String number, @Nullable String callerName) {
+        return matchCaller && number != null ? number + "|" + (callerName != null ? callerName : "") : null;
+    }
+
+    private static void remember(LinkedHashMap<String, Long> seen, String key, long now) {
+        seen.remove(key);
+        seen.put(key, now);
+        while (seen.size() > maxEntries) {
+            Iterator<String> iterator = seen.keySet().iterator();
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    private static void evictExpired(LinkedHashMap<String, Long> seen, long now) {
+        Iterator<Map.Entry<String, Long>> iterator = seen.entrySet().iterator();
+        while (iterator.hasNext()) {
+            if (now - iterator.next().getValue() < windowMs) {
+                break;
+            }
+            iterator.remove();
+        }
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2016-2019 The CallKeep Authors (see the AUTHORS file)
+ * SPDX-License-Identifier: ISC, MIT
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package io.wazo.callkeep;
+
+import android.app.Notification;
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.os.Build;
+import android.util.Log;
+import androidx.annotation.Nullable;
+import androidx.core.app.NotificationCompat;
+
+import com.facebook.react.bridge.ReadableMap;
+
+import static io.wazo.callkeep.Constants.EXTRA_CALL_UUID;
+
+/*
+ * Native ringing UI of self-managed calls, shown from `onShowIncomingCallUi` without waiting for JS.
+ * Its Answer and Decline actions are handled by `IncomingCallNotificationReceiver`.
+ */
+public class IncomingCallNotification {
+    private static final String TAG = "RNCallKeep";
+
+    public static final String ACTION_ANSWER = "io.wazo.callkeep.ACTION_NOTIFICATION_ANSWER";
+    public static final String ACTION_DECLINE = "io.wazo.callkeep.ACTION_NOTIFICATION_DECLINE";
+
+    private static final String DEFAULT_CHANNEL_ID = "rn-callkeep-incoming-call";
+    private static final String DEFAULT_CHANNEL_NAME = "Incoming calls";
+
+    @Nullable
+    private static ReadableMap getConfig(Context context) {
+        try {
+            ReadableMap settings = RNCallKeepModule.getSettings(context);
+            ReadableMap config = settings != null && settings.hasKey("incomingCallNotification") ? settings.getMap("incomingCallNotification") : null;
+            if (config == null || (config.hasKey("enabled") && !config.getBoolean("enabled"))) {
+                return null;
+            }
+            return config;
+        } catch (Exception e) {
+            Log.w(TAG, "[IncomingCallNotification] can't read incomingCallNotification settings: " + e.toString());
+            return null;
+        }
+    }
+
+    /*
+     * Returns false when the notification is not configured.
+     */
+    public static boolean show(Context context, String uuid, @Nullable String callerName, @Nullable String number) {
+        ReadableMap config = getConfig(context);
+        if (config == null || uuid == null) {
+            return false;
+        }
+
+        String channelId = getString(config, "channelId", DEFAULT_CHANNEL_ID);
+        NotificationManager manager = (NotificationManager) context.getSystemService(Context.NOTIFICATION_SERVICE);
+        if (manager == null) {
+            return false;
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            NotificationChannel channel = new NotificationChannel(channelId, getString(config, "channelName", DEFAULT_CHANNEL_NAME), NotificationManager.IMPORTANCE_HIGH);
+            channel.setLockscreenVisibility(Notification.VISIBILITY_PUBLIC);
+            // The app plays its own ringtone in self-managed mode
+            channel.setSound(null, null);
+            manager.createNotificationChannel(channel);
+        }
+
+        int notificationId = getNotificationId(uuid);
+        String title = callerName != null && !callerName.isEmpty() ? callerName : number;
+        NotificationCompat.Builder builder = new NotificationCompat.Builder(context, channelId)
+            .setSmallIcon(getSmallIcon(context, config))
+            .setContentTitle(title)
+            .setContentText(getString(config, "text", "Incoming call"))
+            .setPriority(NotificationCompat.PRIORITY_MAX)
+            .setCategory(NotificationCompat.CATEGORY_CALL)
+            .setVisibility(NotificationCompat.VISIBILITY_PUBLIC)
+            .setOngoing(true)
+            .setAutoCancel(false)
+            .addAction(0, getString(config, "declineText", "Decline"), getActionIntent(context, ACTION_DECLINE, uuid, notificationId))
+            .addAction(0, getString(config, "answerText", "Answer"), getActionIntent(context, ACTION_ANSWER, uuid, notificationId));
+
+        Intent launchIntent = context.getPackageManager().getLaunchIntentForPackage(context.getPackageName());
+        if (launchIntent != null) {
+            launchIntent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_SINGLE_TOP);
+            launchIntent.putExtra(EXTRA_CALL_UUID, uuid);
+            PendingIntent contentIntent = PendingIntent.getActivity(context, notificationId, launchIntent, getFlags());
+            builder.setContentIntent(contentIntent);
+            if (!config.hasKey("fullScreen") || config.getBoolean("fullScreen")) {
+                builder.setFullScreenIntent(contentIntent, true);
+            }
+        }
+
+        manager.notify(uuid, notificationId, builder.build());
+        Log.d(TAG, "[IncomingCallNotification] show, uuid: " + uuid);
+        return true;
+    }
+
+    public static void cancel(@Nullable Context context, String uuid) {
+        if (context == null || uuid == null) {
+            return;
+        }
+        NotificationManager manager = (NotificationManager) context.getSystemService(Context.NOTIFICATION_SERVICE);
+        if (manager != null) {
+            manager.cancel(uuid, getNotificationId(uuid));
+        }
+    }
+
+    private static PendingIntent getActionIntent(Context context, String action, String uuid, int notificationId) {
+        Intent intent = new Intent(context, IncomingCallNotificationReceiver.class);
+        intent.setAction(action);
+        intent.putExtra(EXTRA_CALL_UUID, uuid);
+        return PendingIntent.getBroadcast(context, notificationId, intent, getFlags());
+    }
+
+    private static int getFlags() {
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.M ? PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE : PendingIntent.FLAG_UPDATE_CURRENT;
+    }
+
+    private static int getNotificationId(String uuid) {
+        return uuid.hashCode();
+    }
+
+    private static int getSmallIcon(Context context, ReadableMap config) {
+        if (config.hasKey("notificationIcon")) {
+            int identifier = context.getResources().getIdentifier(config.getString("notificationIcon"), "mipmap", context.getPackageName());
+            if (identifier != 0) {
+                return identifier;
+            }
+        }
+        return context.getApplicationInfo().icon;
+    }
+
+    private static String getString(ReadableMap config, String key, String defaultValue) {
+        return config.hasKey(key) && config.getString(key) != null ? config.getString(key) : defaultValue;
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) 2016-2019 The CallKeep Authors (see the AUTHORS file)
+ * SPDX-License-Identifier: ISC, MIT
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package io.wazo.callkeep;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.util.Log;
+
+import static io.wazo.callkeep.Constants.EXTRA_CALL_UUID;
+
+/*
+ * Answer and Decline actions of `IncomingCallNotification`, applied to the connection like the native UI would.
+ */
+public class IncomingCallNotificationReceiver extends BroadcastReceiver {
+    private static final String TAG = "RNCallKeep";
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        String uuid = intent.getStringExtra(EXTRA_CALL_UUID);
+        Log.d(TAG, "[IncomingCallNotificationReceiver] onReceive, action: " + intent.getAction() + ", uuid: " + uuid);
+
+        IncomingCallNotification.cancel(context, uuid);
+        VoiceConnection connection = uuid != null ? VoiceConnectionService.currentConnections.get(uuid) : null;
+        if (connection == null) {
+            Log.w(TAG, "[IncomingCallNotificationReceiver] no connection found, uuid: " + uuid);
+            return;
+        }
+
+        if (IncomingCallNotification.ACTION_ANSWER.equals(intent.getAction())) {
+            connection.onAnswer();
+        } else if (IncomingCallNotification.ACTION_DECLINE.equals(intent.getAction())) {
+            connection.onReject();
+        }
+    }
+}
@@ -3,18 +3,22 @@ package io.wazo.callkeep;
 import java.util.Iterator;
 import java.util.Map;
 
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.ReadableArray;
 import com.facebook.react.bridge.ReadableMapKeySetIterator;
 import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.ReadableType;
+import com.facebook.react.bridge.WritableArray;
 import com.facebook.react.bridge.WritableMap;
-import com.facebook.react.bridge.WritableNativeMap;
 
+import org.json.JSONArray;
 import org.json.JSONObject;
 import org.json.JSONException;
 
 public class MapUtils {
     // @see https://gist.github.com/viperwarp/2beb6bbefcc268dee7ad
     public static WritableMap convertJsonToMap(JSONObject jsonObject) throws JSONException {
-        WritableMap map = new WritableNativeMap();
+        WritableMap map = Arguments.createMap();
 
         Iterator<String> iterator = jsonObject.keys();
         while (iterator.hasNext()) {
@@ -22,6 +26,8 @@ public class MapUtils {
             Object value = jsonObject.get(key);
             if (value instanceof JSONObject) {
                 map.putMap(key, convertJsonToMap((JSONObject) value));
+            } else if (value instanceof JSONArray) {
+                map.putArray(key, convertJsonToArray((JSONArray) value));
             } else if (value instanceof  Boolean) {
                 map.putBoolean(key, (Boolean) value);
             } else if (value instanceof  Integer) {
@@ -37,6 +43,31 @@ public class MapUtils {
         return map;
     }
 
+    private static WritableArray convertJsonToArray(JSONArray jsonArray) throws JSONException {
+        WritableArray array = Arguments.createArray();
+        for (int i = 0; i < jsonArray.length(); i++) {
+            Object value = jsonArray.get(i);
+            if (value instanceof JSONObject) {
+                array.pushMap(convertJsonToMap((JSONObject) value));
+            } else if (value instanceof JSONArray) {
+                array.pushArray(convertJsonToArray((JSONArray) value));
+            } else if (value instanceof  Boolean) {
+                array.pushBoolean((Boolean) value);
+            } else if (value instanceof  Integer) {
+                array.pushInt((Integer) value);
+            } else if (value instanceof  Long) {
+                array.pushDouble((Long) value);
+            } else if (value instanceof  Double) {
+                array.pushDouble((Double) value);
+            } else if (value == JSONObject.NULL) {
+                array.pushNull();
+            } else {
+                array.pushString(value.toString());
+            }
+        }
+        return array;
+    }
+
     public static JSONObject convertMapToJson(ReadableMap readableMap) throws JSONException {
         JSONObject object = new JSONObject();
         ReadableMapKeySetIterator iterator = readableMap.keySetIterator();
@@ -58,11 +89,96 @@ public class MapUtils {
                 case Map:
                     object.put(key, convertMapToJson(readableMap.getMap(key)));
                     break;
+                case Array:
+                    object.put(key, convertArrayToJson(readableMap.getArray(key)));
+                    break;
             }
         }
         return object;
     }
 
+    private static JSONArray convertArrayToJson(ReadableArray readableArray) throws JSONException {
+        JSONArray array = new JSONArray();
+        for (int i = 0; i < readableArray.size(); i++) {
+            switch (readableArray.getType(i)) {
+                case Null:
+                    array.put(JSONObject.NULL);
+                    break;
+                case Boolean:
+                    array.put(readableArray.getBoolean(i));
+                    break;
+                case Number:
+                    array.put(readableArray.getDouble(i));
+                    break;
+                case String:
+                    array.put(readableArray.getString(i));
+                    break;
+                case Map:
+                    array.put(convertMapToJson(readableArray.getMap(i)));
+                    break;
+                case Array:
+                    array.put(convertArrayToJson(readableArray.getArray(i)));
+                    break;
+            }
+        }
+        return array;
+    }
+
+    /*
+     * Copy of `base` with the keys of `patch`, a null value removes the key.
+     * With `deep`, maps present in both are merged instead of replaced.
+     */
+    public static WritableMap merge(ReadableMap base, ReadableMap patch, boolean deep) {
+        WritableMap result = Arguments.createMap();
+        ReadableMapKeySetIterator iterator = base.keySetIterator();
+        while (iterator.hasNextKey()) {
+            String key = iterator.nextKey();
+            if (!patch.hasKey(key)) {
+                copyValue(base, key, result);
+            }
+        }
+
+        iterator = patch.keySetIterator();
+        while (iterator.hasNextKey()) {
+            String key = iterator.nextKey();
+            switch (patch.getType(key)) {
+                case Null:
+                    break;
+                case Map:
+                    ReadableMap baseValue = deep && base.hasKey(key) && base.getType(key) == ReadableType.Map ? base.getMap(key) : Arguments.createMap();
+                    result.putMap(key, merge(baseValue, patch.getMap(key), deep));
+                    break;
+                default:
+                    copyValue(patch, key, result);
+            }
+        }
+        return result;
+    }
+
+    public static void copyValue(ReadableMap from, String key, WritableMap to) {
+        switch (from.getType(key)) {
+            case Null:
+                to.putNull(key);
+                break;
+            case Boolean:
+                to.putBoolean(key, from.getBoolean(key));
+                break;
+            case Number:
+                to.putDouble(key, from.getDouble(key));
+                break;
+            case String:
+                to.putString(key, from.getString(key));
+                break;
+            // Native maps only hold native copies
+            case Map:
+                to.putMap(key, Arguments.makeNativeMap(from.getMap(key).toHashMap()));
+                break;
+            case Array:
+                to.putArray(key, Arguments.makeNativeArray(from.getArray(key).toArrayList()));
+                break;
+        }
+    }
+
     public static WritableMap readableToWritableMap(ReadableMap readableMap) {
         try {
             JSONObject json = convertMapToJson(readableMap);
@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2016-2019 The CallKeep Authors (see the AUTHORS file)
+ * SPDX-License-Identifier: ISC, MIT
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package io.wazo.callkeep;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.WritableMap;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/*
+ * State of `prepareOutgoingCall()`: once the phone account and permissions are checked, `startCall` skips these checks
+ * for `PREPARED_TTL_MS` or until the settings change. Also measures the time from `startCall` to `DIALING`.
+ */
+public class OutgoingCallPreparer {
+    private static final String TAG = "RNCallKeep";
+    private static final long PREPARED_TTL_MS = 5 * 60 * 1000;
+    private static final int MAX_PENDING_DIALS = 16;
+
+    private static long preparedAt = 0;
+    // Calls placed by `startCall` waiting for their connection, by uuid
+    private static final LinkedHashMap<String, Long> pendingDials = new LinkedHashMap<>();
+
+    private static long dialCount = 0;
+    private static long fastDialCount = 0;
+    private static long measuredDialCount = 0;
+    private static long totalDialMs = 0;
+    private static long lastDialMs = -1;
+
+    public static synchronized void onPrepared() {
+        preparedAt = SystemClock.elapsedRealtime();
+    }
+
+    public static synchronized void invalidate() {
+        preparedAt = 0;
+    }
+
+    public static synchronized boolean isPrepared() {
+        return preparedAt > 0 && SystemClock.elapsedRealtime() - preparedAt < PREPARED_TTL_MS;
+    }
+
+    public static synchronized void onCallPlaced(String uuid, boolean fastDial) {
+        dialCount++;
+        if (fastDial) {
+            fastDialCount++;
+        }
+        if (uuid == null) {
+            return;
+        }
+
+        pendingDials.put(uuid, SystemClock.elapsedRealtime());
+        // Telecom may never create some of them, eg: when the call is refused
+        if (pendingDials.size() > MAX_PENDING_DIALS) {
+            Iterator<String> iterator = pendingDials.keySet().iterator();
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    public static synchronized boolean isPlacedFromApp(String uuid) {
+        return uuid != null && pendingDials.containsKey(uuid);
+    }
+
+    public static synchronized void onDialing(String uuid) {
+        Long placedAt = uuid != null ? pendingDials.remove(uuid) : null;
+        if (placedAt == null) {
+            return;
+        }
+
+        lastDialMs = SystemClock.elapsedRealtime() - placedAt;
+        totalDialMs += lastDialMs;
+        measuredDialCount++;
+        Log.d(TAG, "[OutgoingCallPreparer] onDialing, uuid: " + uuid + ", dial time: " + lastDialMs + " ms");
+    }
+
+    public static synchronized WritableMap getStats() {
+        WritableMap stats = Arguments.createMap();
+        stats.putBoolean("prepared", isPrepared());
+        stats.putDouble("dials", dialCount);
+        stats.putDouble("fastDials", fastDialCount);
+        if (lastDialMs >= 0) {
+            stats.putDouble("lastDialMs", lastDialMs);
+            stats.putDouble("averageDialMs", (double) totalDialMs / measuredDialCount);
+        }
+        return stats;
+    }
+}
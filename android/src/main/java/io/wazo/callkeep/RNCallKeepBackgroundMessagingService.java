@@ -17,38 +17,160 @@
 
 package io.wazo.callkeep;
 
+import android.content.ComponentName;
+import android.content.Context;
 import android.content.Intent;
 import android.os.Bundle;
+import android.os.SystemClock;
 import android.util.Log;
 
 import com.facebook.react.HeadlessJsTaskService;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.WritableArray;
 import com.facebook.react.bridge.WritableMap;
 import com.facebook.react.bridge.Arguments;
 import com.facebook.react.jstasks.HeadlessJsTaskConfig;
 import com.facebook.react.jstasks.HeadlessJsTaskRetryPolicy;
 import com.facebook.react.jstasks.LinearCountingRetryPolicy;
 
-import static io.wazo.callkeep.Constants.EXTRA_CALLER_NAME;
-import static io.wazo.callkeep.Constants.EXTRA_CALL_NUMBER;
-import static io.wazo.callkeep.Constants.EXTRA_CALL_UUID;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 
 import javax.annotation.Nullable;
 
 public class RNCallKeepBackgroundMessagingService extends HeadlessJsTaskService {
+  private static final String TAG = "RNCallKeep";
+  private static final int DEFAULT_TIMEOUT = 60000;
+  private static final int DEFAULT_RETRY_COUNT = 5;
+  private static final int DEFAULT_RETRY_DELAY = 500;
+
+  // Calls waiting for the headless task started for a previous call, by uuid
+  private static final LinkedHashMap<String, Bundle> pendingCalls = new LinkedHashMap<>();
+  private static boolean taskInFlight = false;
+  private static long taskStartedAt = 0;
+  private static long wakeUpCount = 0;
+  private static long coalescedWakeUpCount = 0;
+
+  /*
+   * Start the headless task for a call, or add the call to the task already starting.
+   * Calls added while JS boots are returned by `getPendingWakeCalls()`, or sent with a new task when it finishes.
+   * When JS is already running, they are sent right away with the `RNCallKeepDidReceiveWakeCalls` event.
+   */
+  public static void wakeUp(Context context, String uuid, String name, String handle) {
+    WritableArray coalescedCalls = addCall(context, uuid, name, handle);
+    if (coalescedCalls != null) {
+      RNCallKeepModule.sendWakeCalls(coalescedCalls);
+    }
+  }
+
+  private static synchronized @Nullable WritableArray addCall(Context context, String uuid, String name, String handle) {
+    Bundle call = new Bundle();
+    call.putString("callUUID", uuid);
+    call.putString("name", name);
+    call.putString("handle", handle);
+
+    if (taskInFlight && SystemClock.elapsedRealtime() - taskStartedAt < getTaskTimeout(context)) {
+      Log.d(TAG, "[RNCallKeepBackgroundMessagingService] wakeUp coalesced, uuid: " + uuid + ", pending: " + (pendingCalls.size() + 1));
+      pendingCalls.put(uuid, call);
+      coalescedWakeUpCount++;
+      // The task may never finish, eg: it can't start while the app is in foreground
+      return RNCallKeepModule.isBoundToJS() ? drainPendingCalls() : null;
+    }
+
+    pendingCalls.put(uuid, call);
+    startTask(context);
+    return null;
+  }
+
+  public static synchronized WritableArray drainPendingCalls() {
+    WritableArray calls = Arguments.createArray();
+    for (Bundle call : pendingCalls.values()) {
+      calls.pushMap(Arguments.fromBundle(call));
+    }
+    pendingCalls.clear();
+    return calls;
+  }
+
+  public static synchronized WritableMap getStats() {
+    WritableMap stats = Arguments.createMap();
+    stats.putDouble("wakeUps", wakeUpCount);
+    stats.putDouble("coalescedWakeUps", coalescedWakeUpCount);
+    stats.putBoolean("taskInFlight", taskInFlight);
+    stats.putInt("pendingCalls", pendingCalls.size());
+    return stats;
+  }
+
+  private static void startTask(Context context) {
+    Context appContext = context.getApplicationContext();
+    ArrayList<Bundle> calls = new ArrayList<>(pendingCalls.values());
+    Bundle first = calls.get(0);
+
+    // The first call is also sent at the root of the task data, as before
+    Intent headlessIntent = new Intent(appContext, RNCallKeepBackgroundMessagingService.class);
+    headlessIntent.putExtra("callUUID", first.getString("callUUID"));
+    headlessIntent.putExtra("name", first.getString("name"));
+    headlessIntent.putExtra("handle", first.getString("handle"));
+    headlessIntent.putParcelableArrayListExtra("calls", calls);
+
+    Log.d(TAG, "[RNCallKeepBackgroundMessagingService] startTask, calls: " + calls.size());
+    try {
+      ComponentName name = appContext.startService(headlessIntent);
+      if (name != null) {
+        Log.d(TAG, "[RNCallKeepBackgroundMessagingService] startTask, acquiring lock for application:" + name);
+        HeadlessJsTaskService.acquireWakeLockNow(appContext);
+        taskInFlight = true;
+        taskStartedAt = SystemClock.elapsedRealtime();
+        wakeUpCount++;
+        pendingCalls.clear();
+      }
+    } catch (Exception e) {
+      Log.w(TAG, "[RNCallKeepBackgroundMessagingService] startTask, error" + e.toString());
+    }
+  }
+
+  private static synchronized void onTaskDone(Context context) {
+    taskInFlight = false;
+    if (!pendingCalls.isEmpty()) {
+      Log.d(TAG, "[RNCallKeepBackgroundMessagingService] onTaskDone, starting a task for pending calls: " + pendingCalls.size());
+      startTask(context);
+    }
+  }
+
+  @Override
+  public void onHeadlessJsTaskFinish(int taskId) {
+    super.onHeadlessJsTaskFinish(taskId);
+    onTaskDone(this);
+  }
+
+  private static @Nullable ReadableMap getHeadlessTaskSettings(@Nullable Context context) {
+    try {
+      WritableMap settings = RNCallKeepModule.getSettings(context);
+      return settings != null && settings.hasKey("headlessTask") ? settings.getMap("headlessTask") : null;
+    } catch (Exception e) {
+      return null;
+    }
+  }
+
+  private static int getTaskTimeout(@Nullable Context context) {
+    ReadableMap taskSettings = getHeadlessTaskSettings(context);
+    return taskSettings != null && taskSettings.hasKey("timeout") ? taskSettings.getInt("timeout") : DEFAULT_TIMEOUT;
+  }
+
   @Override
   protected @Nullable
   HeadlessJsTaskConfig getTaskConfig(Intent intent) {
     Bundle extras = intent.getExtras();
+    ReadableMap taskSettings = getHeadlessTaskSettings(this);
 
     HeadlessJsTaskRetryPolicy retryPolicy = new LinearCountingRetryPolicy(
-      5, // Max number of retry attempts
-      500 // Delay between each retry attempt
+      taskSettings != null && taskSettings.hasKey("retryCount") ? taskSettings.getInt("retryCount") : DEFAULT_RETRY_COUNT, // Max number of retry attempts
+      taskSettings != null && taskSettings.hasKey("retryDelay") ? taskSettings.getInt("retryDelay") : DEFAULT_RETRY_DELAY // Delay between each retry attempt
     );
 
     return new HeadlessJsTaskConfig(
       "RNCallKeepBackgroundMessage",
       Arguments.fromBundle(extras),
-      60000,
+      getTaskTimeout(this),
       false,
       retryPolicy
     );
@@ -36,6 +36,7 @@ import android.net.Uri;
 import android.os.Build;
 import android.os.Bundle;
 import android.os.Looper;
+import android.os.SystemClock;
 import android.view.WindowManager;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
@@ -55,17 +56,16 @@ import android.util.Log;
 
 import com.facebook.react.bridge.Arguments;
 import com.facebook.react.bridge.Dynamic;
+import com.facebook.react.bridge.JavaOnlyMap;
 import com.facebook.react.bridge.Promise;
 import com.facebook.react.bridge.ReactApplicationContext;
 import com.facebook.react.bridge.ReactContextBaseJavaModule;
 import com.facebook.react.bridge.ReactMethod;
 import com.facebook.react.bridge.ReadableArray;
 import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.ReadableMapKeySetIterator;
 import com.facebook.react.bridge.WritableArray;
 import com.facebook.react.bridge.WritableMap;
-import com.facebook.react.bridge.WritableNativeArray;
-import com.facebook.react.bridge.WritableNativeMap;
-import com.facebook.react.HeadlessJsTaskService;
 import com.facebook.react.modules.core.DeviceEventManagerModule.RCTDeviceEventEmitter;
 import com.facebook.react.modules.permissions.PermissionsModule;
 
@@ -86,22 +86,31 @@ import static io.wazo.callkeep.Constants.EXTRA_CALLER_NAME;
 import static io.wazo.callkeep.Constants.EXTRA_CALL_UUID;
 import static io.wazo.callkeep.Constants.EXTRA_CALL_NUMBER;
 import static io.wazo.callkeep.Constants.EXTRA_HAS_VIDEO;
-import static io.wazo.callkeep.Constants.EXTRA_PAYLOAD;
 import static io.wazo.callkeep.Constants.ACTION_END_CALL;
 import static io.wazo.callkeep.Constants.ACTION_ANSWER_CALL;
 import static io.wazo.callkeep.Constants.ACTION_MUTE_CALL;
 import static io.wazo.callkeep.Constants.ACTION_UNMUTE_CALL;
 import static io.wazo.callkeep.Constants.ACTION_DTMF_TONE;
+import static io.wazo.callkeep.Constants.ACTION_DTMF_SEQUENCE_PROGRESS;
+import static io.wazo.callkeep.Constants.ACTION_DTMF_SEQUENCE_COMPLETED;
 import static io.wazo.callkeep.Constants.ACTION_HOLD_CALL;
 import static io.wazo.callkeep.Constants.ACTION_UNHOLD_CALL;
 import static io.wazo.callkeep.Constants.ACTION_ONGOING_CALL;
 import static io.wazo.callkeep.Constants.ACTION_AUDIO_SESSION;
+import static io.wazo.callkeep.Constants.ACTION_AUDIO_SESSION_DEACTIVATED;
 import static io.wazo.callkeep.Constants.ACTION_CHECK_REACHABILITY;
 import static io.wazo.callkeep.Constants.ACTION_WAKE_APP;
 import static io.wazo.callkeep.Constants.ACTION_SHOW_INCOMING_CALL_UI;
 import static io.wazo.callkeep.Constants.ACTION_ON_SILENCE_INCOMING_CALL;
 import static io.wazo.callkeep.Constants.ACTION_ON_CREATE_CONNECTION_FAILED;
 import static io.wazo.callkeep.Constants.ACTION_DID_CHANGE_AUDIO_ROUTE;
+import static io.wazo.callkeep.Constants.ACTION_CONFERENCE_CHANGED;
+import static io.wazo.callkeep.Constants.EXTRA_CONFERENCE_EVENT;
+import static io.wazo.callkeep.Constants.EXTRA_CONFERENCE_HOLD;
+import static io.wazo.callkeep.Constants.EXTRA_CONFERENCE_ID;
+import static io.wazo.callkeep.Constants.EXTRA_CONFERENCE_MEMBER_COUNT;
+import static io.wazo.callkeep.Constants.EXTRA_CONFERENCE_MUTED;
+import static io.wazo.callkeep.Constants.EXTRA_CONFERENCE_VERSION;
 
 // @see https://github.com/kbagchiGWC/voice-quickstart-android/blob/9a2aff7fbe0d0a5ae9457b48e9ad408740dfb968/exampleConnectionService/src/main/java/com/twilio/voice/examples/connectionservice/VoiceConnectionServiceActivity.java
 public class RNCallKeepModule extends ReactContextBaseJavaModule implements LifecycleEventListener {
@@ -112,6 +121,7 @@ public class RNCallKeepModule extends ReactContextBaseJavaModule implements Life
 
     private static final String E_ACTIVITY_DOES_NOT_EXIST = "E_ACTIVITY_DOES_NOT_EXIST";
     private static final String REACT_NATIVE_MODULE_NAME = "RNCallKeep";
+    private static final String SETTINGS_PATCH_PREFIX = "settings:";
     private static String[] permissions = {
         Build.VERSION.SDK_INT < 30 ? Manifest.permission.READ_PHONE_STATE : Manifest.permission.READ_PHONE_NUMBERS,
         Manifest.permission.CALL_PHONE,
@@ -122,30 +132,71 @@ public class RNCallKeepModule extends ReactContextBaseJavaModule implements Life
     private static TelecomManager telecomManager;
     private LegacyCallStateListener legacyCallStateListener;
     private CallStateListener callStateListener;
+    private boolean isListeningToNativeCallsState = false;
     private static TelephonyManager telephonyManager;
     private static Promise hasPhoneAccountPromise;
     private ReactApplicationContext reactContext;
     public static PhoneAccountHandle handle;
-    private boolean isReceiverRegistered = false;
-    private VoiceBroadcastReceiver voiceBroadcastReceiver;
+    // Registered once and kept between React contexts, so no event is lost while the app reloads
+    private static VoiceBroadcastReceiver voiceBroadcastReceiver;
     private static WritableMap _settings;
-    private WritableNativeArray delayedEvents;
+    // Events waiting for JS, they outlive the module to be replayed in the next React context
+    private static WritableArray delayedEvents;
     private boolean hasListeners = false;
+    // `alwaysQueuedEvents` received while JS runs without a listener for them, emitted when one is added.
+    // They belong to this JS runtime and are not replayed by the next one.
+    private final Map<String, List<WritableMap>> eventsWaitingForListener = new HashMap<>();
+    private static final int MAX_EVENTS_WAITING_FOR_LISTENER = 20;
     private boolean hasActiveCall = false;
 
     public static RNCallKeepModule getInstance(ReactApplicationContext reactContext, boolean realContext) {
+        // A module belongs to a single React context: after a reload, replace it instead of keeping the previous context alive
+        if (instance != null && realContext && reactContext != null && instance.reactContext != reactContext) {
+            Log.d(TAG, "[RNCallKeepModule] getInstance, new react context, replacing the previous module");
+            instance.release();
+            instance = null;
+        }
         if (instance == null) {
             Log.d(TAG, "[RNCallKeepModule] getInstance : " + (reactContext == null ? "null" : "ok"));
             instance = new RNCallKeepModule(reactContext);
             instance.registerReceiver();
             instance.fetchStoredSettings(reactContext);
+            instance.reconcileActiveCalls();
         }
         if (realContext) {
             instance.setContext(reactContext);
+            if (reactContext != null) {
+                ReactInstancePrewarmer.onModuleCreated();
+            }
         }
         return instance;
     }
 
+    static synchronized int getDelayedEventCount() {
+        return delayedEvents != null ? delayedEvents.size() : 0;
+    }
+
+    private static synchronized WritableArray getDelayedEvents() {
+        if (delayedEvents == null) {
+            delayedEvents = Arguments.createArray();
+        }
+        return delayedEvents;
+    }
+
+    private static synchronized WritableArray takeDelayedEvents() {
+        WritableArray events = getDelayedEvents();
+        delayedEvents = null;
+        return events;
+    }
+
+    private static synchronized void queueEvent(String eventName, @Nullable WritableMap params) {
+        WritableMap data = Arguments.createMap();
+        data.putString("name", eventName);
+        data.putMap("data", params != null ? params : Arguments.createMap());
+        getDelayedEvents().pushMap(data);
+        CallKeepStats.increment(CallKeepStats.EVENTS_QUEUED);
+    }
+
     public static WritableMap getSettings(@Nullable Context context) {
         if (_settings == null) {
             fetchStoredSettings(context);
@@ -154,14 +205,14 @@ public class RNCallKeepModule extends ReactContextBaseJavaModule implements Life
         return _settings;
     }
 
-    private RNCallKeepModule(ReactApplicationContext reactContext) {
+    // Use `getInstance`, only package-private for tests
+    RNCallKeepModule(ReactApplicationContext reactContext) {
         super(reactContext);
         // This line for listening to the Activity Lifecycle Events so we can end the calls onDestroy
         reactContext.addLifecycleEventListener(this);
         Log.d(TAG, "[RNCallKeepModule] constructor");
 
         this.reactContext = reactContext;
-        delayedEvents = new WritableNativeArray();
     }
 
     private boolean isSelfManaged() {
@@ -186,10 +237,51 @@ public class RNCallKeepModule extends ReactContextBaseJavaModule implements Life
         return this.reactContext;
     }
 
+    // Called when the React instance is destroyed, depending on the React Native version (no @Override for that reason)
+    public void invalidate() {
+        this.onReactContextDestroyed();
+    }
+
+    public void onCatalystInstanceDestroy() {
+        this.onReactContextDestroyed();
+    }
+
+    private void onReactContextDestroyed() {
+        Log.d(TAG, "[RNCallKeepModule] onReactContextDestroyed");
+        this.release();
+        if (instance == this) {
+            instance = null;
+            ReactInstancePrewarmer.onReactContextDestroyed();
+        }
+    }
+
+    // Drop every reference to the React context held by this module or registered on its behalf.
+    // The broadcast receiver is static and stays registered: it queues the events until the next module.
+    private void release() {
+        if (this.isListeningToNativeCallsState) {
+            this.stopListenToNativeCallsState();
+        }
+        this.callStateListener = null;
+
+        if (this.reactContext != null) {
+            this.reactContext.removeLifecycleEventListener(this);
+        }
+        this.hasListeners = false;
+        this.reactContext = null;
+        EventSubscriptions.reset();
+        synchronized (eventsWaitingForListener) {
+            eventsWaitingForListener.clear();
+        }
+    }
+
     public void reportNewIncomingCall(String uuid, String number, String callerName, boolean hasVideo, String payload) {
         Log.d(TAG, "[RNCallKeepModule] reportNewIncomingCall, uuid: " + uuid + ", number: " + number + ", callerName: " + callerName);
 
-        this.displayIncomingCall(uuid, number, callerName, hasVideo);
+        if (IncomingCallDeduplicator.isDuplicate(uuid, number, callerName)) {
+            Log.w(TAG, "[RNCallKeepModule] reportNewIncomingCall ignored because the call was already reported, uuid: " + uuid);
+            return;
+        }
+        this.addNewIncomingCall(uuid, number, callerName, hasVideo, null);
 
         // Send event to JS
         WritableMap args = Arguments.createMap();
@@ -203,12 +295,23 @@ public class RNCallKeepModule extends ReactContextBaseJavaModule implements Life
         sendEventToJS("RNCallKeepDidDisplayIncomingCall", args);
     }
 
+    // Report the calls that were active when a previous process died, Telecom already ended them
+    private void reconcileActiveCalls() {
+        if (this.reactContext == null) {
+            return;
+        }
+        for (WritableMap orphan : ActiveCallJournal.reconcile(this.getAppContext(), VoiceConnectionService.currentConnections.keySet())) {
+            Log.w(TAG, "[RNCallKeepModule] reconcileActiveCalls, orphaned call: " + orphan.getString("callUUID"));
+            sendEventToJS("RNCallKeepDidFindOrphanedCall", orphan);
+        }
+    }
+
     public void startObserving() {
-        int count = delayedEvents.size();
+        int count = getDelayedEventCount();
         Log.d(TAG, "[RNCallKeepModule] startObserving, event count: " + count);
         if (count > 0) {
-            this.reactContext.getJSModule(RCTDeviceEventEmitter.class).emit("RNCallKeepDidLoadWithEvents", delayedEvents);
-            delayedEvents = new WritableNativeArray();
+            this.reactContext.getJSModule(RCTDeviceEventEmitter.class).emit("RNCallKeepDidLoadWithEvents", takeDelayedEvents());
+            CallKeepStats.add(CallKeepStats.EVENTS_SENT, count);
         }
     }
 
@@ -302,6 +405,7 @@ public class RNCallKeepModule extends ReactContextBaseJavaModule implements Life
 
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S && callStateListener !=null){
             telephonyManager.unregisterTelephonyCallback(callStateListener);
+            isListeningToNativeCallsState = false;
         } else if (Build.VERSION.SDK_INT < Build.VERSION_CODES.S && legacyCallStateListener != null){
             telephonyManager.listen(legacyCallStateListener, PhoneStateListener.LISTEN_NONE);
             Looper.myLooper().quit();
@@ -315,8 +419,13 @@ public class RNCallKeepModule extends ReactContextBaseJavaModule implements Life
 
         if (permissionCheck == PackageManager.PERMISSION_GRANTED) {
             if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S) {
+                  // Already registered by `prepareOutgoingCall`
+                  if (isListeningToNativeCallsState) {
+                      return;
+                  }
                   callStateListener = new CallStateListener();
                   telephonyManager.registerTelephonyCallback(context.getMainExecutor(),callStateListener);
+                  isListeningToNativeCallsState = true;
             } else {
                   if (Looper.myLooper() == null) {
                     Looper.prepare();
@@ -351,16 +460,111 @@ public class RNCallKeepModule extends ReactContextBaseJavaModule implements Life
             return;
         }
         _settings = storeSettings(options);
+        CallPolicy.configure(_settings);
+        IncomingCallDeduplicator.configure(_settings);
+        IncomingCallAdmission.configure(_settings);
+        CallHistoryStore.configure(_settings);
+        CallKeepTrace.configure(_settings);
+        EventSubscriptions.configure(_settings);
+        OutgoingCallPreparer.invalidate();
+        VoiceConnectionService.invalidateForegroundNotification();
+    }
+
+    /*
+     * Deep merges `partial` into the settings: only the changed top level keys are written and their subscribers notified.
+     * A null value removes the key.
+     */
+    @ReactMethod
+    public void updateSettings(ReadableMap partial) {
+        Log.d(TAG, "[RNCallKeepModule] updateSettings : " + partial);
+        patchSettings(partial, true);
+    }
+
+    private void patchSettings(@Nullable ReadableMap patch, boolean deep) {
+        if (patch == null) {
+            return;
+        }
+        WritableMap settings = getSettings(null);
+        _settings = MapUtils.merge(settings != null ? settings : Arguments.createMap(), patch, deep);
+
+        Context context = getAppContext();
+        SharedPreferences.Editor editor = context != null ? context.getSharedPreferences("rn-callkeep", Context.MODE_PRIVATE).edit() : null;
+        ReadableMapKeySetIterator iterator = patch.keySetIterator();
+        while (iterator.hasNextKey()) {
+            String key = iterator.nextKey();
+            if (editor != null) {
+                storeSetting(editor, key);
+            }
+            onSettingChanged(key);
+        }
+        if (editor != null) {
+            editor.apply();
+        }
+    }
+
+    // Each patched key is stored apart from the `settings` blob as `settings:<key>`, an object with the key only (empty when removed)
+    private void storeSetting(SharedPreferences.Editor editor, String key) {
+        WritableMap value = new JavaOnlyMap();
+        if (_settings.hasKey(key)) {
+            MapUtils.copyValue(_settings, key, value);
+        }
+        try {
+            editor.putString(SETTINGS_PATCH_PREFIX + key, MapUtils.convertMapToJson(value).toString());
+        } catch (JSONException e) {
+            Log.w(TAG, "[RNCallKeepModule][storeSetting] exception: " + e);
+        }
+    }
+
+    private void onSettingChanged(String key) {
+        switch (key) {
+            case "callPolicy":
+                CallPolicy.configure(_settings);
+                break;
+            case "incomingCallDeduplication":
+                IncomingCallDeduplicator.configure(_settings);
+                break;
+            case "incomingCallAdmission":
+                IncomingCallAdmission.configure(_settings);
+                break;
+            case "callHistory":
+                CallHistoryStore.configure(_settings);
+                break;
+            case "trace":
+                CallKeepTrace.configure(_settings);
+                break;
+            case "alwaysQueuedEvents":
+                EventSubscriptions.configure(_settings);
+                break;
+            case "foregroundService":
+                VoiceConnectionService.invalidateForegroundNotification();
+                break;
+            case "selfManaged":
+            case "imageName":
+            case "additionalPermissions":
+                OutgoingCallPreparer.invalidate();
+                break;
+            default:
+                // Other settings are read when used, eg: `displayCallReachabilityTimeout` for each incoming call
+                break;
+        }
     }
 
     @ReactMethod
     public void addListener(String eventName) {
       // Keep: Required for RN built in Event Emitter Calls.
+      EventSubscriptions.onListenerAdded(eventName);
+      emitEventsWaitingForListener(eventName);
     }
 
     @ReactMethod
     public void removeListeners(Integer count) {
       // Keep: Required for RN built in Event Emitter Calls.
+      // The event name is not given here, `removeEventListeners` is called by index.js instead
+    }
+
+    @ReactMethod
+    public void removeEventListeners(String eventName, int count) {
+        EventSubscriptions.onListenersRemoved(eventName, count);
     }
 
     @ReactMethod
@@ -423,6 +627,7 @@ public class RNCallKeepModule extends ReactContextBaseJavaModule implements Life
         Log.d(TAG, "[RNCallKeepModule] registerEvents");
 
         this.hasListeners = true;
+        ReactInstancePrewarmer.onJSAttached();
         this.startObserving();
         VoiceConnectionService.setPhoneAccountHandle(handle);
     }
@@ -445,8 +650,53 @@ public class RNCallKeepModule extends ReactContextBaseJavaModule implements Life
     }
 
     public void displayIncomingCall(String uuid, String number, String callerName, boolean hasVideo, @Nullable Bundle payload) {
+        // Checked before anything else to avoid the binder calls for a call we already know
+        if (IncomingCallDeduplicator.isDuplicate(uuid, number, callerName)) {
+            Log.w(TAG, "[RNCallKeepModule] displayIncomingCall ignored because the call was already reported, uuid: " + uuid);
+            return;
+        }
+        this.addNewIncomingCall(uuid, number, callerName, hasVideo, payload);
+    }
+
+    private void addNewIncomingCall(final String uuid, final String number, final String callerName, final boolean hasVideo, @Nullable final Bundle payload) {
+        IncomingCallAdmission.submit(uuid, new Runnable() {
+            @Override
+            public void run() {
+                // Queued calls are admitted later from another thread, place them from the module thread like the others
+                runOnModuleThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        placeIncomingCall(uuid, number, callerName, hasVideo, payload);
+                    }
+                });
+            }
+        }, new Runnable() {
+            @Override
+            public void run() {
+                IncomingCallDeduplicator.onDropped(uuid, number, callerName);
+                WritableMap args = Arguments.createMap();
+                args.putString("handle", number);
+                args.putString("callUUID", uuid);
+                args.putString("name", callerName);
+                args.putString("reason", "admissionRejected");
+                sendEventToJS("RNCallKeepOnIncomingConnectionFailed", args);
+            }
+        });
+    }
+
+    private void runOnModuleThread(Runnable runnable) {
+        ReactApplicationContext context = this.reactContext;
+        if (context == null || context.isOnNativeModulesQueueThread()) {
+            runnable.run();
+            return;
+        }
+        context.runOnNativeModulesQueueThread(runnable);
+    }
+
+    private void placeIncomingCall(String uuid, String number, String callerName, boolean hasVideo, @Nullable Bundle payload) {
         if (!isConnectionServiceAvailable() || !hasPhoneAccount()) {
             Log.w(TAG, "[RNCallKeepModule] displayIncomingCall ignored due to no ConnectionService or no phone account");
+            IncomingCallDeduplicator.onDropped(uuid, number, callerName);
             return;
         }
 
@@ -459,9 +709,8 @@ public class RNCallKeepModule extends ReactContextBaseJavaModule implements Life
         extras.putString(EXTRA_CALLER_NAME, callerName);
         extras.putString(EXTRA_CALL_UUID, uuid);
         extras.putString(EXTRA_HAS_VIDEO, String.valueOf(hasVideo));
-        if (payload != null) {
-            extras.putBundle(EXTRA_PAYLOAD, payload);
-        }
+        // Kept in the process, the UUID is enough to find it
+        CallPayloadStore.put(uuid, payload);
         this.listenToNativeCallsState();
         telecomManager.addNewIncomingCall(handle, extras);
     }
@@ -496,7 +745,9 @@ public class RNCallKeepModule extends ReactContextBaseJavaModule implements Life
     public void startCall(String uuid, String number, String callerName, boolean hasVideo, @Nullable Bundle payload) {
         Log.d(TAG, "[RNCallKeepModule] startCall called, uuid: " + uuid + ", number: " + number + ", callerName: " + callerName + ", payload: " + payload);
 
-        if (!isConnectionServiceAvailable() || !hasPhoneAccount() || !hasPermissions() || number == null) {
+        // The phone account and permissions were already checked by `prepareOutgoingCall`
+        boolean fastDial = OutgoingCallPreparer.isPrepared();
+        if (number == null || (!fastDial && (!isConnectionServiceAvailable() || !hasPhoneAccount() || !hasPermissions()))) {
             Log.w(TAG, "[RNCallKeepModule] startCall ignored: " + isConnectionServiceAvailable() + ", " + hasPhoneAccount() + ", " + hasPermissions() + ", " + number);
             return;
         }
@@ -509,16 +760,53 @@ public class RNCallKeepModule extends ReactContextBaseJavaModule implements Life
         callExtras.putString(EXTRA_CALL_UUID, uuid);
         callExtras.putString(EXTRA_CALL_NUMBER, number);
         callExtras.putString(EXTRA_HAS_VIDEO, String.valueOf(hasVideo));
-        if (payload != null) {
-            callExtras.putBundle(EXTRA_PAYLOAD, payload);
-        }
+        CallPayloadStore.put(uuid, payload);
 
         extras.putParcelable(TelecomManager.EXTRA_PHONE_ACCOUNT_HANDLE, handle);
         extras.putParcelable(TelecomManager.EXTRA_OUTGOING_CALL_EXTRAS, callExtras);
 
-        Log.d(TAG, "[RNCallKeepModule] startCall, uuid: " + uuid);
+        Log.d(TAG, "[RNCallKeepModule] startCall, uuid: " + uuid + ", fastDial: " + fastDial);
+        OutgoingCallPreparer.onCallPlaced(uuid, fastDial);
         this.listenToNativeCallsState();
-        telecomManager.placeCall(uri, extras);
+        try {
+            telecomManager.placeCall(uri, extras);
+        } catch (SecurityException e) {
+            Log.w(TAG, "[RNCallKeepModule] startCall failed, uuid: " + uuid + ", fastDial: " + fastDial + ", " + e.toString());
+            OutgoingCallPreparer.invalidate();
+            CallPayloadStore.remove(uuid);
+            if (fastDial) {
+                // A permission was revoked since `prepareOutgoingCall`, the slow path checks them again
+                this.startCall(uuid, number, callerName, hasVideo, payload);
+            }
+        }
+    }
+
+    @ReactMethod
+    public void prepareOutgoingCall(Promise promise) {
+        Log.d(TAG, "[RNCallKeepModule] prepareOutgoingCall called");
+        long start = SystemClock.elapsedRealtime();
+
+        boolean prepared = isConnectionServiceAvailable() && hasPhoneAccount() && hasPermissions();
+        if (prepared) {
+            // The legacy listener runs a Looper on the calling thread, it is only registered by `startCall`
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S) {
+                this.listenToNativeCallsState();
+            }
+            VoiceConnectionService.prepareForegroundNotification(this.getAppContext());
+            OutgoingCallPreparer.onPrepared();
+        } else {
+            OutgoingCallPreparer.invalidate();
+        }
+
+        WritableMap result = Arguments.createMap();
+        result.putBoolean("prepared", prepared);
+        result.putDouble("durationMs", SystemClock.elapsedRealtime() - start);
+        promise.resolve(result);
+    }
+
+    @ReactMethod
+    public void getOutgoingCallStats(Promise promise) {
+        promise.resolve(OutgoingCallPreparer.getStats());
     }
 
     @ReactMethod
@@ -531,18 +819,159 @@ public class RNCallKeepModule extends ReactContextBaseJavaModule implements Life
 
         Connection conn = VoiceConnectionService.getConnection(uuid);
         if (conn == null) {
-            Log.w(TAG, "[RNCallKeepModule] endCall ignored because no connection found, uuid: " + uuid);
+            logMissingConnection("endCall", uuid);
             return;
         }
-        Context context = this.getAppContext();
-        AudioManager audioManager = (AudioManager) context.getSystemService(context.AUDIO_SERVICE);
-        audioManager.setMode(0);
         conn.onDisconnect();
         this.stopListenToNativeCallsState();
         this.hasActiveCall = false;
         Log.d(TAG, "[RNCallKeepModule] endCall executed, uuid: " + uuid);
     }
 
+    @ReactMethod
+    public void endCalls(ReadableArray uuids, Promise promise) {
+        Log.d(TAG, "[RNCallKeepModule] endCalls called, count: " + uuids.size());
+        WritableArray commands = Arguments.createArray();
+        for (int i = 0; i < uuids.size(); i++) {
+            commands.pushMap(createCommand(uuids.getString(i), "end"));
+        }
+        this.applyCommands(commands, promise);
+    }
+
+    @ReactMethod
+    public void setOnHoldMany(ReadableArray uuids, boolean shouldHold, Promise promise) {
+        Log.d(TAG, "[RNCallKeepModule] setOnHoldMany called, count: " + uuids.size() + ", shouldHold: " + shouldHold);
+        WritableArray commands = Arguments.createArray();
+        for (int i = 0; i < uuids.size(); i++) {
+            commands.pushMap(createCommand(uuids.getString(i), shouldHold ? "hold" : "unhold"));
+        }
+        this.applyCommands(commands, promise);
+    }
+
+    @ReactMethod
+    public void setMutedMany(ReadableArray uuids, boolean shouldMute, Promise promise) {
+        Log.d(TAG, "[RNCallKeepModule] setMutedMany called, count: " + uuids.size() + ", shouldMute: " + shouldMute);
+        WritableArray commands = Arguments.createArray();
+        for (int i = 0; i < uuids.size(); i++) {
+            commands.pushMap(createCommand(uuids.getString(i), shouldMute ? "mute" : "unmute"));
+        }
+        this.applyCommands(commands, promise);
+    }
+
+    /*
+     * Run a list of `{ uuid, action }` commands in a single pass over the current connections.
+     * Availability is checked once for the whole batch, and each command gets its own result.
+     */
+    @ReactMethod
+    public void applyCommands(ReadableArray commands, Promise promise) {
+        Log.d(TAG, "[RNCallKeepModule] applyCommands called, count: " + commands.size());
+        if (!isConnectionServiceAvailable() || !hasPhoneAccount()) {
+            Log.w(TAG, "[RNCallKeepModule] applyCommands ignored due to no ConnectionService or no phone account");
+            promise.reject("ApplyCommands", "No ConnectionService or no phone account");
+            return;
+        }
+
+        WritableArray results = Arguments.createArray();
+        boolean hasEndedCalls = false;
+
+        for (int i = 0; i < commands.size(); i++) {
+            WritableMap result = Arguments.createMap();
+            String uuid = null;
+            String action = null;
+
+            try {
+                // A malformed command only fails its own result
+                ReadableMap command = commands.getMap(i);
+                uuid = command != null && command.hasKey("uuid") ? command.getString("uuid") : null;
+                action = command != null && command.hasKey("action") ? command.getString("action") : null;
+            } catch (Exception e) {
+                Log.w(TAG, "[RNCallKeepModule] applyCommands, invalid command at index " + i + ", " + e.toString());
+                result.putNull("uuid");
+                result.putNull("action");
+                result.putBoolean("success", false);
+                result.putString("error", "invalid command: " + e.getMessage());
+                results.pushMap(result);
+                continue;
+            }
+
+            result.putString("uuid", uuid);
+            result.putString("action", action);
+
+            VoiceConnection conn = uuid != null ? (VoiceConnection) VoiceConnectionService.getConnection(uuid) : null;
+            if (conn == null) {
+                result.putBoolean("success", false);
+                result.putString("error", "no connection found");
+                results.pushMap(result);
+                continue;
+            }
+
+            try {
+                boolean applied = applyCommand(conn, action);
+                result.putBoolean("success", applied);
+                if (!applied) {
+                    result.putString("error", "unknown action");
+                }
+                if (applied && ("end".equals(action) || "reject".equals(action))) {
+                    hasEndedCalls = true;
+                }
+            } catch (Exception e) {
+                Log.w(TAG, "[RNCallKeepModule] applyCommands, " + action + " failed for uuid: " + uuid + ", " + e.toString());
+                result.putBoolean("success", false);
+                result.putString("error", e.getMessage());
+            }
+            results.pushMap(result);
+        }
+
+        if (hasEndedCalls) {
+            this.stopListenToNativeCallsState();
+            if (VoiceConnectionService.currentConnections.isEmpty()) {
+                this.hasActiveCall = false;
+            }
+        }
+
+        Log.d(TAG, "[RNCallKeepModule] applyCommands executed");
+        promise.resolve(results);
+    }
+
+    private boolean applyCommand(VoiceConnection conn, String action) {
+        if (action == null) {
+            return false;
+        }
+
+        switch (action) {
+            case "end":
+                conn.onDisconnect();
+                return true;
+            case "reject":
+                conn.onReject();
+                return true;
+            case "answer":
+                conn.onAnswer();
+                return true;
+            case "hold":
+                conn.onHold();
+                return true;
+            case "unhold":
+                conn.onUnhold();
+                return true;
+            case "mute":
+                setConnectionMuted(conn, true);
+                return true;
+            case "unmute":
+                setConnectionMuted(conn, false);
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private WritableMap createCommand(String uuid, String action) {
+        WritableMap command = Arguments.createMap();
+        command.putString("uuid", uuid);
+        command.putString("action", action);
+        return command;
+    }
+
     @ReactMethod
     public void endAllCalls() {
         Log.d(TAG, "[RNCallKeepModule] endAllCalls called");
@@ -686,12 +1115,12 @@ public class RNCallKeepModule extends ReactContextBaseJavaModule implements Life
 
     @ReactMethod
     public void getInitialEvents(Promise promise) {
-        promise.resolve(delayedEvents);
+        promise.resolve(getDelayedEvents());
     }
 
     @ReactMethod
     public void clearInitialEvents() {
-        delayedEvents = new WritableNativeArray();
+        takeDelayedEvents();
     }
 
     @ReactMethod
@@ -700,7 +1129,7 @@ public class RNCallKeepModule extends ReactContextBaseJavaModule implements Life
 
         Connection conn = VoiceConnectionService.getConnection(uuid);
         if (conn == null) {
-            Log.w(TAG, "[RNCallKeepModule] setOnHold ignored because no connection found, uuid: " + uuid);
+            logMissingConnection("setOnHold", uuid);
             return;
         }
 
@@ -711,6 +1140,64 @@ public class RNCallKeepModule extends ReactContextBaseJavaModule implements Life
         }
     }
 
+    @ReactMethod
+    public void mergeCalls(String uuid1, String uuid2, Promise promise) {
+        Log.d(TAG, "[RNCallKeepModule] mergeCalls, uuid1: " + uuid1 + ", uuid2: " + uuid2);
+        VoiceConference conference = VoiceConnectionService.mergeCalls(uuid1, uuid2);
+        if (conference == null) {
+            promise.reject("MergeCalls", "No connection found for uuids: " + uuid1 + ", " + uuid2);
+            return;
+        }
+        promise.resolve(conference.getConferenceId());
+    }
+
+    @ReactMethod
+    public void separateCall(String uuid) {
+        Log.d(TAG, "[RNCallKeepModule] separateCall, uuid: " + uuid);
+        VoiceConnectionService.separateCall(uuid);
+    }
+
+    @ReactMethod
+    public void setConferenceOnHold(String conferenceId, boolean shouldHold) {
+        Log.d(TAG, "[RNCallKeepModule] setConferenceOnHold, conferenceId: " + conferenceId + ", shouldHold: " + shouldHold);
+        VoiceConference conference = VoiceConnectionService.getConference(conferenceId);
+        if (conference == null) {
+            Log.w(TAG, "[RNCallKeepModule] setConferenceOnHold ignored because no conference found, conferenceId: " + conferenceId);
+            return;
+        }
+        conference.setHeld(shouldHold);
+    }
+
+    @ReactMethod
+    public void setConferenceMuted(String conferenceId, boolean shouldMute) {
+        Log.d(TAG, "[RNCallKeepModule] setConferenceMuted, conferenceId: " + conferenceId + ", shouldMute: " + shouldMute);
+        VoiceConference conference = VoiceConnectionService.getConference(conferenceId);
+        if (conference == null) {
+            Log.w(TAG, "[RNCallKeepModule] setConferenceMuted ignored because no conference found, conferenceId: " + conferenceId);
+            return;
+        }
+        conference.setMuted(shouldMute);
+    }
+
+    @ReactMethod
+    public void getConferences(Promise promise) {
+        WritableArray conferences = Arguments.createArray();
+        for (VoiceConference conference : VoiceConnectionService.currentConferences.values()) {
+            WritableMap conferenceInfo = Arguments.createMap();
+            WritableArray members = Arguments.createArray();
+            for (String uuid : conference.getMemberUuids()) {
+                members.pushString(uuid);
+            }
+            conferenceInfo.putString("conferenceId", conference.getConferenceId());
+            conferenceInfo.putArray("callUUIDs", members);
+            conferenceInfo.putInt("version", conference.getVersion());
+            conferenceInfo.putBoolean("hold", conference.isHeld());
+            conferenceInfo.putBoolean("muted", conference.isMuted());
+            conferences.pushMap(conferenceInfo);
+        }
+        promise.resolve(conferences);
+    }
+
     @ReactMethod
     public void reportEndCallWithUUID(String uuid, int reason) {
         Log.d(TAG, "[RNCallKeepModule] reportEndCallWithUUID, uuid: " + uuid + ", reason: " + reason);
@@ -720,7 +1207,7 @@ public class RNCallKeepModule extends ReactContextBaseJavaModule implements Life
 
         VoiceConnection conn = (VoiceConnection) VoiceConnectionService.getConnection(uuid);
         if (conn == null) {
-            Log.w(TAG, "[RNCallKeepModule] reportEndCallWithUUID ignored because no connection found, uuid: " + uuid);
+            logMissingConnection("reportEndCallWithUUID", uuid);
             return;
         }
         conn.reportDisconnect(reason);
@@ -769,7 +1256,7 @@ public class RNCallKeepModule extends ReactContextBaseJavaModule implements Life
 
         Connection conn = VoiceConnectionService.getConnection(uuid);
         if (conn == null) {
-            Log.w(TAG, "[RNCallKeepModule] rejectCall ignored because no connection found, uuid: " + uuid);
+            logMissingConnection("rejectCall", uuid);
             return;
         }
         this.stopListenToNativeCallsState();
@@ -792,19 +1279,17 @@ public class RNCallKeepModule extends ReactContextBaseJavaModule implements Life
         Log.d(TAG, "[RNCallKeepModule] setMutedCall, uuid: " + uuid + ", shouldMute: " + (shouldMute ? "true" : "false"));
         Connection conn = VoiceConnectionService.getConnection(uuid);
         if (conn == null) {
-            Log.w(TAG, "[RNCallKeepModule] setMutedCall ignored because no connection found, uuid: " + uuid);
+            logMissingConnection("setMutedCall", uuid);
             return;
         }
 
-        CallAudioState newAudioState = null;
+        setConnectionMuted(conn, shouldMute);
+    }
+
+    private void setConnectionMuted(Connection conn, boolean shouldMute) {
         //if the requester wants to mute, do that. otherwise unmute
-        if (shouldMute) {
-            newAudioState = new CallAudioState(true, conn.getCallAudioState().getRoute(),
-                    conn.getCallAudioState().getSupportedRouteMask());
-        } else {
-            newAudioState = new CallAudioState(false, conn.getCallAudioState().getRoute(),
-                    conn.getCallAudioState().getSupportedRouteMask());
-        }
+        CallAudioState newAudioState = new CallAudioState(shouldMute, conn.getCallAudioState().getRoute(),
+                conn.getCallAudioState().getSupportedRouteMask());
         conn.onCallAudioStateChanged(newAudioState);
     }
     /**
@@ -935,12 +1420,70 @@ public class RNCallKeepModule extends ReactContextBaseJavaModule implements Life
         conn.onPlayDtmfTone(dtmf);
     }
 
+    @ReactMethod
+    public void sendDTMFSequence(String uuid, String digits, @Nullable ReadableMap options, Promise promise) {
+        Log.d(TAG, "[RNCallKeepModule] sendDTMFSequence, uuid: " + uuid + ", digits: " + digits + ", options: " + options);
+        VoiceConnection conn = (VoiceConnection) VoiceConnectionService.getConnection(uuid);
+        if (conn == null) {
+            Log.w(TAG, "[RNCallKeepModule] sendDTMFSequence ignored because no connection found, uuid: " + uuid);
+            promise.reject("SendDTMFSequence", "No connection found for uuid: " + uuid);
+            return;
+        }
+        if (!DtmfSequenceSender.isValidSequence(digits)) {
+            promise.reject("SendDTMFSequence", "Invalid DTMF sequence: " + digits);
+            return;
+        }
+
+        int toneDuration = DtmfSequenceSender.DEFAULT_TONE_DURATION_MS;
+        int gapDuration = DtmfSequenceSender.DEFAULT_INTER_TONE_GAP_MS;
+        int batchSize = 0;
+        boolean waitForAck = false;
+        if (options != null) {
+            if (options.hasKey("toneDuration")) {
+                toneDuration = options.getInt("toneDuration");
+            }
+            if (options.hasKey("pauseDuration")) {
+                gapDuration = options.getInt("pauseDuration");
+            }
+            if (options.hasKey("progressBatchSize")) {
+                batchSize = options.getInt("progressBatchSize");
+            }
+            if (options.hasKey("waitForAck")) {
+                waitForAck = options.getBoolean("waitForAck");
+            }
+        }
+
+        conn.sendDtmfSequence(digits, toneDuration, gapDuration, batchSize, waitForAck);
+        promise.resolve(true);
+    }
+
+    @ReactMethod
+    public void acknowledgeDTMF(String uuid) {
+        VoiceConnection conn = (VoiceConnection) VoiceConnectionService.getConnection(uuid);
+        if (conn == null) {
+            Log.w(TAG, "[RNCallKeepModule] acknowledgeDTMF ignored because no connection found, uuid: " + uuid);
+            return;
+        }
+        conn.acknowledgeDtmf();
+    }
+
+    @ReactMethod
+    public void stopDTMFSequence(String uuid) {
+        Log.d(TAG, "[RNCallKeepModule] stopDTMFSequence, uuid: " + uuid);
+        VoiceConnection conn = (VoiceConnection) VoiceConnectionService.getConnection(uuid);
+        if (conn == null) {
+            Log.w(TAG, "[RNCallKeepModule] stopDTMFSequence ignored because no connection found, uuid: " + uuid);
+            return;
+        }
+        conn.cancelDtmfSequence();
+    }
+
     @ReactMethod
     public void updateDisplay(String uuid, String displayName, String uri) {
         Log.d(TAG, "[RNCallKeepModule] updateDisplay, uuid: " + uuid + ", displayName: " + displayName+ ", uri: " + uri);
         Connection conn = VoiceConnectionService.getConnection(uuid);
         if (conn == null) {
-            Log.w(TAG, "[RNCallKeepModule] updateDisplay ignored because no connection found, uuid: " + uuid);
+            logMissingConnection("updateDisplay", uuid);
             return;
         }
 
@@ -962,6 +1505,83 @@ public class RNCallKeepModule extends ReactContextBaseJavaModule implements Life
         promise.resolve(VoiceConnectionService.hasOutgoingCall);
     }
 
+    @ReactMethod
+    public void getIncomingCallDeduplicationStats(Promise promise) {
+        promise.resolve(IncomingCallDeduplicator.getStats());
+    }
+
+    @ReactMethod
+    public void getIncomingCallAdmissionStats(Promise promise) {
+        promise.resolve(IncomingCallAdmission.getStats());
+    }
+
+    @ReactMethod
+    public void getPendingWakeCalls(Promise promise) {
+        promise.resolve(RNCallKeepBackgroundMessagingService.drainPendingCalls());
+    }
+
+    @ReactMethod
+    public void getHeadlessTaskStats(Promise promise) {
+        promise.resolve(RNCallKeepBackgroundMessagingService.getStats());
+    }
+
+    @ReactMethod
+    public void getReactInstanceStats(Promise promise) {
+        promise.resolve(ReactInstancePrewarmer.getStats());
+    }
+
+    @ReactMethod
+    public void getCallHistory(ReadableMap filter, String cursor, int limit, Promise promise) {
+        Context context = this.getAppContext();
+        if (context == null) {
+            promise.reject("GetCallHistory", "No react context found");
+            return;
+        }
+        try {
+            promise.resolve(CallHistoryStore.query(context, filter, cursor, limit));
+        } catch (NumberFormatException e) {
+            promise.reject("GetCallHistory", "Invalid cursor: " + cursor);
+        }
+    }
+
+    @ReactMethod
+    public void clearCallHistory() {
+        Context context = this.getAppContext();
+        if (context != null) {
+            CallHistoryStore.clear(context);
+        }
+    }
+
+    @ReactMethod
+    public void getEndedCall(String uuid, Promise promise) {
+        promise.resolve(EndedCallCache.get(uuid));
+    }
+
+    @ReactMethod
+    public void getStats(Promise promise) {
+        promise.resolve(CallKeepStats.getStats());
+    }
+
+    @ReactMethod
+    public void getConnectionLifecycleStats(Promise promise) {
+        promise.resolve(ConnectionLifecycle.getStats());
+    }
+
+    @ReactMethod
+    public void getCallPolicyDecisions(Promise promise) {
+        promise.resolve(CallPolicy.getDecisions());
+    }
+
+    @ReactMethod
+    public void getActiveCalls(Promise promise) {
+        promise.resolve(CallStateRegistry.getActiveCalls());
+    }
+
+    @ReactMethod
+    public void getCallChangesSince(double version, @Nullable String epoch, Promise promise) {
+        promise.resolve(CallStateRegistry.getChangesSince((long) version, epoch));
+    }
+
     @ReactMethod
     public void hasPermissions(Promise promise) {
         promise.resolve(this.hasPermissions());
@@ -978,13 +1598,10 @@ public class RNCallKeepModule extends ReactContextBaseJavaModule implements Life
             return;
         }
 
-        // Retrieve settings and set the `foregroundService` value
-        WritableMap settings = getSettings(null);
-        if (settings != null) {
-            settings.putMap("foregroundService", MapUtils.readableToWritableMap(foregroundServerSettings));
-        }
-
-        setSettings(settings);
+        // Replace the `foregroundService` value only
+        WritableMap patch = new JavaOnlyMap();
+        patch.putMap("foregroundService", foregroundServerSettings);
+        patchSettings(patch, false);
     }
 
     @ReactMethod
@@ -1110,7 +1727,7 @@ public class RNCallKeepModule extends ReactContextBaseJavaModule implements Life
     }
 
     public Activity getCurrentReactActivity() {
-        return this.reactContext.getCurrentActivity();
+        return this.reactContext != null ? this.reactContext.getCurrentActivity() : null;
     }
 
     private void registerPhoneAccount(Context appContext) {
@@ -1149,20 +1766,101 @@ public class RNCallKeepModule extends ReactContextBaseJavaModule implements Life
     }
 
     public void sendEventToJS(String eventName, @Nullable WritableMap params) {
-        boolean isBoundToJS = this.reactContext.hasActiveCatalystInstance();
+        boolean isBoundToJS = this.reactContext != null && this.reactContext.hasActiveCatalystInstance();
         Log.v(TAG, "[RNCallKeepModule] sendEventToJS, eventName: " + eventName + ", bound: " + isBoundToJS + ", hasListeners: " + hasListeners + " args : " + (params != null ? params.toString() : "null"));
 
-        if (isBoundToJS && hasListeners) {
+        boolean traced = CallKeepTrace.beginSection("sendEventToJS", eventName);
+        try {
+            if (isBoundToJS && hasListeners && EventSubscriptions.isObserved(eventName)) {
+                this.reactContext.getJSModule(RCTDeviceEventEmitter.class).emit(eventName, params);
+                CallKeepStats.increment(CallKeepStats.EVENTS_SENT);
+            } else if (isBoundToJS && hasListeners && EventSubscriptions.isAlwaysQueued(eventName)) {
+                waitForListener(eventName, params);
+            } else if (isBoundToJS && hasListeners) {
+                // No JS listener for this event
+                CallKeepStats.increment(CallKeepStats.EVENTS_DROPPED);
+            } else {
+                queueEvent(eventName, params);
+            }
+        } finally {
+            CallKeepTrace.endSection(traced);
+        }
+    }
+
+    private void waitForListener(String eventName, @Nullable WritableMap params) {
+        synchronized (eventsWaitingForListener) {
+            List<WritableMap> events = eventsWaitingForListener.get(eventName);
+            if (events == null) {
+                events = new ArrayList<>();
+                eventsWaitingForListener.put(eventName, events);
+            }
+            events.add(params);
+            CallKeepStats.increment(CallKeepStats.EVENTS_QUEUED);
+            // Only the latest ones are kept for an event nobody ever listens to
+            if (events.size() > MAX_EVENTS_WAITING_FOR_LISTENER) {
+                events.remove(0);
+                CallKeepStats.increment(CallKeepStats.EVENTS_DROPPED);
+            }
+        }
+    }
+
+    private void emitEventsWaitingForListener(String eventName) {
+        List<WritableMap> events;
+        synchronized (eventsWaitingForListener) {
+            events = eventsWaitingForListener.remove(eventName);
+        }
+        if (events == null) {
+            return;
+        }
+        boolean isBoundToJS = this.reactContext != null && this.reactContext.hasActiveCatalystInstance();
+        if (!isBoundToJS) {
+            CallKeepStats.add(CallKeepStats.EVENTS_DROPPED, events.size());
+            return;
+        }
+        Log.d(TAG, "[RNCallKeepModule] emitEventsWaitingForListener, eventName: " + eventName + ", count: " + events.size());
+        for (WritableMap params : events) {
             this.reactContext.getJSModule(RCTDeviceEventEmitter.class).emit(eventName, params);
+        }
+        CallKeepStats.add(CallKeepStats.EVENTS_SENT, events.size());
+    }
+
+    // Events received between two React contexts are queued for the next one
+    static boolean isBoundToJS() {
+        RNCallKeepModule module = instance;
+        return module != null && module.reactContext != null && module.reactContext.hasActiveCatalystInstance();
+    }
+
+    // Calls added to a running headless task, see `RNCallKeepBackgroundMessagingService.wakeUp`
+    static void sendWakeCalls(WritableArray calls) {
+        WritableMap args = Arguments.createMap();
+        args.putArray("calls", calls);
+        dispatchEventToJS("RNCallKeepDidReceiveWakeCalls", args);
+    }
+
+    private static void dispatchEventToJS(String eventName, @Nullable WritableMap params) {
+        RNCallKeepModule module = instance;
+        if (module != null) {
+            module.sendEventToJS(eventName, params);
         } else {
-            WritableMap data = Arguments.createMap();
-            if (params == null) {
-                params = Arguments.createMap();
-            }
+            queueEvent(eventName, params);
+        }
+    }
 
-            data.putString("name", eventName);
-            data.putMap("data", params);
-            delayedEvents.pushMap(data);
+    // False when `sendEventToJS` would drop the event, so its arguments don't have to be built
+    private boolean willDeliver(@Nullable String eventName) {
+        if (eventName == null || EventSubscriptions.isObserved(eventName) || EventSubscriptions.isAlwaysQueued(eventName)) {
+            return true;
+        }
+        boolean isBoundToJS = this.reactContext != null && this.reactContext.hasActiveCatalystInstance();
+        return !(isBoundToJS && hasListeners);
+    }
+
+    // Late operations on a call that just ended are expected, eg: `endCall` after a remote hangup
+    private void logMissingConnection(String method, String uuid) {
+        if (EndedCallCache.contains(uuid)) {
+            Log.d(TAG, "[RNCallKeepModule] " + method + " ignored because the call already ended, uuid: " + uuid);
+        } else {
+            Log.w(TAG, "[RNCallKeepModule] " + method + " ignored because no connection found, uuid: " + uuid);
         }
     }
 
@@ -1202,8 +1900,16 @@ public class RNCallKeepModule extends ReactContextBaseJavaModule implements Life
     }
 
     protected void registerReceiver() {
-        if (!isReceiverRegistered) {
-            isReceiverRegistered = true;
+        Context context = getAppContext();
+        if (context == null) {
+            return;
+        }
+
+        synchronized (RNCallKeepModule.class) {
+            if (voiceBroadcastReceiver != null) {
+                VoiceConnectionService.startObserving();
+                return;
+            }
             voiceBroadcastReceiver = new VoiceBroadcastReceiver();
             IntentFilter intentFilter = new IntentFilter();
             intentFilter.addAction(ACTION_END_CALL);
@@ -1211,25 +1917,23 @@ public class RNCallKeepModule extends ReactContextBaseJavaModule implements Life
             intentFilter.addAction(ACTION_MUTE_CALL);
             intentFilter.addAction(ACTION_UNMUTE_CALL);
             intentFilter.addAction(ACTION_DTMF_TONE);
+            intentFilter.addAction(ACTION_DTMF_SEQUENCE_PROGRESS);
+            intentFilter.addAction(ACTION_DTMF_SEQUENCE_COMPLETED);
             intentFilter.addAction(ACTION_UNHOLD_CALL);
             intentFilter.addAction(ACTION_HOLD_CALL);
             intentFilter.addAction(ACTION_ONGOING_CALL);
             intentFilter.addAction(ACTION_AUDIO_SESSION);
+            intentFilter.addAction(ACTION_AUDIO_SESSION_DEACTIVATED);
             intentFilter.addAction(ACTION_CHECK_REACHABILITY);
             intentFilter.addAction(ACTION_SHOW_INCOMING_CALL_UI);
             intentFilter.addAction(ACTION_ON_SILENCE_INCOMING_CALL);
             intentFilter.addAction(ACTION_ON_CREATE_CONNECTION_FAILED);
             intentFilter.addAction(ACTION_DID_CHANGE_AUDIO_ROUTE);
+            intentFilter.addAction(ACTION_CONFERENCE_CHANGED);
 
-            if (this.reactContext != null) {
-                LocalBroadcastManager.getInstance(this.reactContext).registerReceiver(voiceBroadcastReceiver, intentFilter);
-
-
-                VoiceConnectionService.startObserving();
-            } else {
-                isReceiverRegistered = false;
-            }
+            LocalBroadcastManager.getInstance(context).registerReceiver(voiceBroadcastReceiver, intentFilter);
         }
+        VoiceConnectionService.startObserving();
     }
 
     private Context getAppContext() {
@@ -1248,7 +1952,14 @@ public class RNCallKeepModule extends ReactContextBaseJavaModule implements Life
         try {
             JSONObject jsonObject = MapUtils.convertMapToJson(options);
             String jsonString = jsonObject.toString();
-            sharedPref.edit().putString("settings", jsonString).apply();
+            SharedPreferences.Editor editor = sharedPref.edit().putString("settings", jsonString);
+            // The whole settings are replaced, previous patches don't apply anymore
+            for (String key : sharedPref.getAll().keySet()) {
+                if (key.startsWith(SETTINGS_PATCH_PREFIX)) {
+                    editor.remove(key);
+                }
+            }
+            editor.apply();
         } catch (JSONException e) {
             Log.w(TAG, "[RNCallKeepModule][storeSettings] exception: " + e);
         }
@@ -1261,7 +1972,7 @@ public class RNCallKeepModule extends ReactContextBaseJavaModule implements Life
             return;
         }
         Context context = fromContext != null ? fromContext : instance.getAppContext();
-        _settings = new WritableNativeMap();
+        _settings = Arguments.createMap();
         if (context == null) {
             Log.w(TAG, "[RNCallKeepModule][fetchStoredSettings] no react context found.");
             return;
@@ -1273,15 +1984,72 @@ public class RNCallKeepModule extends ReactContextBaseJavaModule implements Life
             if (jsonString != null) {
                 JSONObject jsonObject = new JSONObject(jsonString);
 
+                // Apply the keys stored by `updateSettings`
+                for (Map.Entry<String, ?> entry : sharedPref.getAll().entrySet()) {
+                    if (!entry.getKey().startsWith(SETTINGS_PATCH_PREFIX)) {
+                        continue;
+                    }
+                    String key = entry.getKey().substring(SETTINGS_PATCH_PREFIX.length());
+                    JSONObject patch = new JSONObject(String.valueOf(entry.getValue()));
+                    if (patch.has(key)) {
+                        jsonObject.put(key, patch.get(key));
+                    } else {
+                        jsonObject.remove(key);
+                    }
+                }
+
                 _settings = MapUtils.convertJsonToMap(jsonObject);
             }
         } catch(JSONException e) {
         }
-    }
-
-    private class VoiceBroadcastReceiver extends BroadcastReceiver {
+        CallPolicy.configure(_settings);
+        IncomingCallDeduplicator.configure(_settings);
+        IncomingCallAdmission.configure(_settings);
+        CallHistoryStore.configure(_settings);
+        CallKeepTrace.configure(_settings);
+        EventSubscriptions.configure(_settings);
+    }
+
+    // JS event sent for each broadcast action, when there is only one
+    private static final Map<String, String> EVENT_NAMES = new HashMap<>();
+    static {
+        EVENT_NAMES.put(ACTION_END_CALL, "RNCallKeepPerformEndCallAction");
+        EVENT_NAMES.put(ACTION_ANSWER_CALL, "RNCallKeepPerformAnswerCallAction");
+        EVENT_NAMES.put(ACTION_HOLD_CALL, "RNCallKeepDidToggleHoldAction");
+        EVENT_NAMES.put(ACTION_UNHOLD_CALL, "RNCallKeepDidToggleHoldAction");
+        EVENT_NAMES.put(ACTION_MUTE_CALL, "RNCallKeepDidPerformSetMutedCallAction");
+        EVENT_NAMES.put(ACTION_UNMUTE_CALL, "RNCallKeepDidPerformSetMutedCallAction");
+        EVENT_NAMES.put(ACTION_DTMF_TONE, "RNCallKeepDidPerformDTMFAction");
+        EVENT_NAMES.put(ACTION_DTMF_SEQUENCE_PROGRESS, "RNCallKeepDidProgressDTMFSequence");
+        EVENT_NAMES.put(ACTION_DTMF_SEQUENCE_COMPLETED, "RNCallKeepDidCompleteDTMFSequence");
+        EVENT_NAMES.put(ACTION_ONGOING_CALL, "RNCallKeepDidReceiveStartCallAction");
+        EVENT_NAMES.put(ACTION_AUDIO_SESSION, "RNCallKeepDidActivateAudioSession");
+        EVENT_NAMES.put(ACTION_AUDIO_SESSION_DEACTIVATED, "RNCallKeepDidDeactivateAudioSession");
+        EVENT_NAMES.put(ACTION_CHECK_REACHABILITY, "RNCallKeepCheckReachability");
+        EVENT_NAMES.put(ACTION_SHOW_INCOMING_CALL_UI, "RNCallKeepShowIncomingCallUi");
+        EVENT_NAMES.put(ACTION_ON_SILENCE_INCOMING_CALL, "RNCallKeepOnSilenceIncomingCall");
+        EVENT_NAMES.put(ACTION_ON_CREATE_CONNECTION_FAILED, "RNCallKeepOnIncomingConnectionFailed");
+        EVENT_NAMES.put(ACTION_DID_CHANGE_AUDIO_ROUTE, "RNCallKeepDidChangeAudioRoute");
+        EVENT_NAMES.put(ACTION_CONFERENCE_CHANGED, "RNCallKeepDidChangeConference");
+    }
+
+    private static class VoiceBroadcastReceiver extends BroadcastReceiver {
         @Override
         public void onReceive(Context context, Intent intent) {
+            boolean traced = CallKeepTrace.beginSection("onReceive", intent.getAction());
+            try {
+                handleBroadcast(context, intent);
+            } finally {
+                CallKeepTrace.endSection(traced);
+            }
+        }
+
+        private void handleBroadcast(Context context, Intent intent) {
+            RNCallKeepModule module = instance;
+            if (module != null && !module.willDeliver(EVENT_NAMES.get(intent.getAction()))) {
+                CallKeepStats.increment(CallKeepStats.EVENTS_DROPPED);
+                return;
+            }
             WritableMap args = Arguments.createMap();
             HashMap<String, String> attributeMap = (HashMap<String, String>)intent.getSerializableExtra("attributeMap");
 
@@ -1290,86 +2058,118 @@ public class RNCallKeepModule extends ReactContextBaseJavaModule implements Life
             switch (intent.getAction()) {
                 case ACTION_END_CALL:
                     args.putString("callUUID", attributeMap.get(EXTRA_CALL_UUID));
-                    sendEventToJS("RNCallKeepPerformEndCallAction", args);
+                    dispatchEventToJS("RNCallKeepPerformEndCallAction", args);
                     break;
                 case ACTION_ANSWER_CALL:
                     args.putString("callUUID", attributeMap.get(EXTRA_CALL_UUID));
                     args.putBoolean("withVideo", Boolean.valueOf(attributeMap.get(EXTRA_HAS_VIDEO)));
-                    sendEventToJS("RNCallKeepPerformAnswerCallAction", args);
+                    dispatchEventToJS("RNCallKeepPerformAnswerCallAction", args);
                     break;
                 case ACTION_HOLD_CALL:
                     args.putBoolean("hold", true);
                     args.putString("callUUID", attributeMap.get(EXTRA_CALL_UUID));
-                    sendEventToJS("RNCallKeepDidToggleHoldAction", args);
+                    dispatchEventToJS("RNCallKeepDidToggleHoldAction", args);
                     break;
                 case ACTION_UNHOLD_CALL:
                     args.putBoolean("hold", false);
                     args.putString("callUUID", attributeMap.get(EXTRA_CALL_UUID));
-                    sendEventToJS("RNCallKeepDidToggleHoldAction", args);
+                    dispatchEventToJS("RNCallKeepDidToggleHoldAction", args);
                     break;
                 case ACTION_MUTE_CALL:
                     args.putBoolean("muted", true);
                     args.putString("callUUID", attributeMap.get(EXTRA_CALL_UUID));
-                    sendEventToJS("RNCallKeepDidPerformSetMutedCallAction", args);
+                    dispatchEventToJS("RNCallKeepDidPerformSetMutedCallAction", args);
                     break;
                 case ACTION_UNMUTE_CALL:
                     args.putBoolean("muted", false);
                     args.putString("callUUID", attributeMap.get(EXTRA_CALL_UUID));
-                    sendEventToJS("RNCallKeepDidPerformSetMutedCallAction", args);
+                    dispatchEventToJS("RNCallKeepDidPerformSetMutedCallAction", args);
                     break;
                 case ACTION_DTMF_TONE:
                     args.putString("digits", attributeMap.get("DTMF"));
                     args.putString("callUUID", attributeMap.get(EXTRA_CALL_UUID));
-                    sendEventToJS("RNCallKeepDidPerformDTMFAction", args);
+                    // Digits of a `sendDTMFSequence`
+                    if (attributeMap.containsKey("DTMF_TONE_DURATION")) {
+                        args.putInt("toneDuration", Integer.parseInt(attributeMap.get("DTMF_TONE_DURATION")));
+                        args.putInt("pauseDuration", Integer.parseInt(attributeMap.get("DTMF_GAP_DURATION")));
+                    }
+                    dispatchEventToJS("RNCallKeepDidPerformDTMFAction", args);
+                    break;
+                case ACTION_DTMF_SEQUENCE_PROGRESS:
+                    args.putString("digits", attributeMap.get("DTMF"));
+                    args.putString("callUUID", attributeMap.get(EXTRA_CALL_UUID));
+                    args.putInt("sent", Integer.parseInt(attributeMap.get("DTMF_SENT")));
+                    args.putInt("total", Integer.parseInt(attributeMap.get("DTMF_TOTAL")));
+                    args.putInt("toneDuration", Integer.parseInt(attributeMap.get("DTMF_TONE_DURATION")));
+                    args.putInt("pauseDuration", Integer.parseInt(attributeMap.get("DTMF_GAP_DURATION")));
+                    dispatchEventToJS("RNCallKeepDidProgressDTMFSequence", args);
+                    break;
+                case ACTION_DTMF_SEQUENCE_COMPLETED:
+                    args.putString("digits", attributeMap.get("DTMF"));
+                    args.putString("callUUID", attributeMap.get(EXTRA_CALL_UUID));
+                    args.putInt("sent", Integer.parseInt(attributeMap.get("DTMF_SENT")));
+                    args.putInt("total", Integer.parseInt(attributeMap.get("DTMF_TOTAL")));
+                    args.putInt("toneDuration", Integer.parseInt(attributeMap.get("DTMF_TONE_DURATION")));
+                    args.putInt("pauseDuration", Integer.parseInt(attributeMap.get("DTMF_GAP_DURATION")));
+                    args.putBoolean("cancelled", Boolean.valueOf(attributeMap.get("DTMF_CANCELLED")));
+                    dispatchEventToJS("RNCallKeepDidCompleteDTMFSequence", args);
                     break;
                 case ACTION_ONGOING_CALL:
                     args.putString("handle", attributeMap.get(EXTRA_CALL_NUMBER));
                     args.putString("callUUID", attributeMap.get(EXTRA_CALL_UUID));
                     args.putString("name", attributeMap.get(EXTRA_CALLER_NAME));
-                    sendEventToJS("RNCallKeepDidReceiveStartCallAction", args);
+                    dispatchEventToJS("RNCallKeepDidReceiveStartCallAction", args);
                     break;
                 case ACTION_AUDIO_SESSION:
-                    sendEventToJS("RNCallKeepDidActivateAudioSession", null);
+                    dispatchEventToJS("RNCallKeepDidActivateAudioSession", null);
+                    break;
+                case ACTION_AUDIO_SESSION_DEACTIVATED:
+                    dispatchEventToJS("RNCallKeepDidDeactivateAudioSession", null);
                     break;
                 case ACTION_CHECK_REACHABILITY:
-                    sendEventToJS("RNCallKeepCheckReachability", null);
+                    dispatchEventToJS("RNCallKeepCheckReachability", null);
                     break;
                 case ACTION_SHOW_INCOMING_CALL_UI:
                     args.putString("handle", attributeMap.get(EXTRA_CALL_NUMBER));
                     args.putString("callUUID", attributeMap.get(EXTRA_CALL_UUID));
                     args.putString("name", attributeMap.get(EXTRA_CALLER_NAME));
                     args.putString("hasVideo", attributeMap.get(EXTRA_HAS_VIDEO));
-                    sendEventToJS("RNCallKeepShowIncomingCallUi", args);
+                    dispatchEventToJS("RNCallKeepShowIncomingCallUi", args);
                     break;
                 case ACTION_WAKE_APP:
-                    Intent headlessIntent = new Intent(reactContext, RNCallKeepBackgroundMessagingService.class);
-                    headlessIntent.putExtra("callUUID", attributeMap.get(EXTRA_CALL_UUID));
-                    headlessIntent.putExtra("name", attributeMap.get(EXTRA_CALLER_NAME));
-                    headlessIntent.putExtra("handle", attributeMap.get(EXTRA_CALL_NUMBER));
                     Log.d(TAG, "[RNCallKeepModule] wakeUpApplication: " + attributeMap.get(EXTRA_CALL_UUID) + ", number : " + attributeMap.get(EXTRA_CALL_NUMBER) + ", displayName:" + attributeMap.get(EXTRA_CALLER_NAME));
-
-                    ComponentName name = reactContext.startService(headlessIntent);
-                    if (name != null) {
-                        HeadlessJsTaskService.acquireWakeLockNow(reactContext);
-                    }
+                    RNCallKeepBackgroundMessagingService.wakeUp(context, attributeMap.get(EXTRA_CALL_UUID), attributeMap.get(EXTRA_CALLER_NAME), attributeMap.get(EXTRA_CALL_NUMBER));
                     break;
                 case ACTION_ON_SILENCE_INCOMING_CALL:
                     args.putString("handle", attributeMap.get(EXTRA_CALL_NUMBER));
                     args.putString("callUUID", attributeMap.get(EXTRA_CALL_UUID));
                     args.putString("name", attributeMap.get(EXTRA_CALLER_NAME));
-                    sendEventToJS("RNCallKeepOnSilenceIncomingCall", args);
+                    dispatchEventToJS("RNCallKeepOnSilenceIncomingCall", args);
                     break;
                 case ACTION_ON_CREATE_CONNECTION_FAILED:
                     args.putString("handle", attributeMap.get(EXTRA_CALL_NUMBER));
                     args.putString("callUUID", attributeMap.get(EXTRA_CALL_UUID));
                     args.putString("name", attributeMap.get(EXTRA_CALLER_NAME));
-                    sendEventToJS("RNCallKeepOnIncomingConnectionFailed", args);
+                    if (attributeMap.containsKey("reason")) {
+                        args.putString("reason", attributeMap.get("reason"));
+                    }
+                    dispatchEventToJS("RNCallKeepOnIncomingConnectionFailed", args);
                     break;
                 case ACTION_DID_CHANGE_AUDIO_ROUTE:
                     args.putString("handle", attributeMap.get(EXTRA_CALL_NUMBER));
                     args.putString("callUUID", attributeMap.get(EXTRA_CALL_UUID));
                     args.putString("output", attributeMap.get("output"));
-                    sendEventToJS("RNCallKeepDidChangeAudioRoute", args);
+                    dispatchEventToJS("RNCallKeepDidChangeAudioRoute", args);
+                    break;
+                case ACTION_CONFERENCE_CHANGED:
+                    args.putString("conferenceId", attributeMap.get(EXTRA_CONFERENCE_ID));
+                    args.putString("event", attributeMap.get(EXTRA_CONFERENCE_EVENT));
+                    args.putString("callUUID", attributeMap.get(EXTRA_CALL_UUID));
+                    args.putInt("memberCount", Integer.parseInt(attributeMap.get(EXTRA_CONFERENCE_MEMBER_COUNT)));
+                    args.putInt("version", Integer.parseInt(attributeMap.get(EXTRA_CONFERENCE_VERSION)));
+                    args.putBoolean("hold", Boolean.valueOf(attributeMap.get(EXTRA_CONFERENCE_HOLD)));
+                    args.putBoolean("muted", Boolean.valueOf(attributeMap.get(EXTRA_CONFERENCE_MUTED)));
+                    dispatchEventToJS("RNCallKeepDidChangeConference", args);
                     break;
             }
         }
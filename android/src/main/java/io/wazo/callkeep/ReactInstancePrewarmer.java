@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2016-2019 The CallKeep Authors (see the AUTHORS file)
+ * SPDX-License-Identifier: ISC, MIT
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package io.wazo.callkeep;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.facebook.react.ReactApplication;
+import com.facebook.react.ReactInstanceManager;
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.WritableMap;
+
+/*
+ * Starts building the React instance in the background, eg: from a push handler, while the ring UI is showing.
+ * The state goes from `idle` to `warming`, `ready` when the native module is created and `attached` when JS registers its events.
+ * Events sent before `attached` are queued by the module and flushed by `registerEvents`.
+ * It goes back to `idle` when the React context is destroyed, so the next instance can be pre-warmed.
+ */
+public class ReactInstancePrewarmer {
+    public static final String STATE_IDLE = "idle";
+    public static final String STATE_WARMING = "warming";
+    public static final String STATE_READY = "ready";
+    public static final String STATE_ATTACHED = "attached";
+
+    private static final String TAG = "RNCallKeep";
+
+    private static String state = STATE_IDLE;
+    private static long warmStartedAt = 0;
+    private static long readyAt = 0;
+    private static long attachedAt = 0;
+    private static long prewarmCount = 0;
+
+    public static synchronized void prewarm(Context context) {
+        if (!STATE_IDLE.equals(state)) {
+            Log.d(TAG, "[ReactInstancePrewarmer] prewarm ignored, state: " + state);
+            return;
+        }
+
+        final Context appContext = context.getApplicationContext();
+        if (!(appContext instanceof ReactApplication)) {
+            Log.w(TAG, "[ReactInstancePrewarmer] prewarm ignored, the application is not a ReactApplication");
+            return;
+        }
+
+        state = STATE_WARMING;
+        warmStartedAt = SystemClock.elapsedRealtime();
+        prewarmCount++;
+
+        // createReactContextInBackground has to be called on the UI thread
+        new Handler(Looper.getMainLooper()).post(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    ReactInstanceManager manager = ((ReactApplication) appContext).getReactNativeHost().getReactInstanceManager();
+                    if (manager.hasStartedCreatingInitialContext()) {
+                        Log.d(TAG, "[ReactInstancePrewarmer] prewarm, React instance already created or being created");
+                        return;
+                    }
+                    Log.d(TAG, "[ReactInstancePrewarmer] prewarm, creating React instance in background");
+                    manager.createReactContextInBackground();
+                } catch (Exception e) {
+                    Log.w(TAG, "[ReactInstancePrewarmer] prewarm, error: " + e.toString());
+                    onFailed();
+                }
+            }
+        });
+    }
+
+    public static synchronized void onModuleCreated() {
+        if (STATE_READY.equals(state) || STATE_ATTACHED.equals(state)) {
+            return;
+        }
+        readyAt = SystemClock.elapsedRealtime();
+        Log.d(TAG, "[ReactInstancePrewarmer] React instance ready" + (warmStartedAt > 0 ? " after " + (readyAt - warmStartedAt) + " ms" : ""));
+        state = STATE_READY;
+    }
+
+    public static synchronized void onJSAttached() {
+        if (STATE_ATTACHED.equals(state)) {
+            return;
+        }
+        attachedAt = SystemClock.elapsedRealtime();
+        Log.d(TAG, "[ReactInstancePrewarmer] JS attached" + (warmStartedAt > 0 ? " after " + (attachedAt - warmStartedAt) + " ms" : ""));
+        state = STATE_ATTACHED;
+    }
+
+    public static synchronized void onReactContextDestroyed() {
+        Log.d(TAG, "[ReactInstancePrewarmer] React context destroyed, state: " + state);
+        state = STATE_IDLE;
+        warmStartedAt = 0;
+    }
+
+    public static synchronized boolean isReady() {
+        return STATE_READY.equals(state) || STATE_ATTACHED.equals(state);
+    }
+
+    public static synchronized WritableMap getStats() {
+        WritableMap stats = Arguments.createMap();
+        stats.putString("state", state);
+        stats.putDouble("prewarmCount", prewarmCount);
+        if (warmStartedAt > 0 && readyAt >= warmStartedAt) {
+            stats.putDouble("readyAfterMs", readyAt - warmStartedAt);
+        }
+        if (warmStartedAt > 0 && attachedAt >= warmStartedAt) {
+            stats.putDouble("attachedAfterMs", attachedAt - warmStartedAt);
+        }
+        return stats;
+    }
+
+    private static synchronized void onFailed() {
+        if (STATE_WARMING.equals(state)) {
+            state = STATE_IDLE;
+        }
+    }
+}
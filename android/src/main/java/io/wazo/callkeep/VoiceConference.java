@@ -17,45 +17,356 @@
 
 package io.wazo.callkeep;
 
+import android.content.Context;
+import android.content.Intent;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.telecom.CallAudioState;
 import android.telecom.Conference;
 import android.telecom.Connection;
+import android.telecom.DisconnectCause;
 import android.telecom.PhoneAccountHandle;
+import android.util.Log;
+import androidx.localbroadcastmanager.content.LocalBroadcastManager;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static io.wazo.callkeep.Constants.ACTION_CONFERENCE_CHANGED;
+import static io.wazo.callkeep.Constants.EXTRA_CALL_UUID;
+import static io.wazo.callkeep.Constants.EXTRA_CONFERENCE_EVENT;
+import static io.wazo.callkeep.Constants.EXTRA_CONFERENCE_HOLD;
+import static io.wazo.callkeep.Constants.EXTRA_CONFERENCE_ID;
+import static io.wazo.callkeep.Constants.EXTRA_CONFERENCE_MEMBER_COUNT;
+import static io.wazo.callkeep.Constants.EXTRA_CONFERENCE_MUTED;
+import static io.wazo.callkeep.Constants.EXTRA_CONFERENCE_VERSION;
 
 public class VoiceConference extends Conference {
+    public static final String EVENT_CREATED = "created";
+    public static final String EVENT_MERGED = "merged";
+    public static final String EVENT_SEPARATED = "separated";
+    public static final String EVENT_REMOVED = "removed";
+    public static final String EVENT_HELD = "held";
+    public static final String EVENT_UNHELD = "unheld";
+    public static final String EVENT_MUTED = "muted";
+    public static final String EVENT_UNMUTED = "unmuted";
+    public static final String EVENT_ENDED = "ended";
+
+    private static final String TAG = "RNCallKeep";
+
+    private final String conferenceId = UUID.randomUUID().toString();
+    // Members by call uuid, updated in place on each add / remove: Telecom changes it on the main thread
+    // while the React Native module thread reads it. Writes hold `membersLock` so none land after `end`.
+    private final Map<String, VoiceConnection> members = new ConcurrentHashMap<>();
+    private final Object membersLock = new Object();
+    // Incremented on each membership change and sent with the events, so JS can tell a stale `getConferences` apart.
+    private int version = 0;
+    private final Context context;
+    private volatile boolean isHeld = false;
+    private volatile boolean isMuted = false;
+    private volatile boolean ended = false;
 
-    VoiceConference(PhoneAccountHandle phoneAccountHandle) {
+    VoiceConference(Context context, PhoneAccountHandle phoneAccountHandle) {
         super(phoneAccountHandle);
+        this.context = context;
+        this.setConnectionCapabilities(Connection.CAPABILITY_MUTE | Connection.CAPABILITY_HOLD | Connection.CAPABILITY_SUPPORT_HOLD);
         this.setActive();
-//        this.setConnectionCapabilities(Connection.CAPABILITY_MUTE | Connection.CAPABILITY_HOLD | Connection.CAPABILITY_SUPPORT_HOLD);
+    }
+
+    public String getConferenceId() {
+        return conferenceId;
+    }
+
+    public List<String> getMemberUuids() {
+        return new ArrayList<>(members.keySet());
+    }
+
+    public boolean isHeld() {
+        return isHeld;
+    }
+
+    public boolean isMuted() {
+        return isMuted;
+    }
+
+    public int getVersion() {
+        synchronized (membersLock) {
+            return version;
+        }
+    }
+
+    public boolean hasMember(String uuid) {
+        return members.containsKey(uuid);
+    }
+
+    private void putMember(String uuid, VoiceConnection connection) {
+        synchronized (membersLock) {
+            if (!ended && members.put(uuid, connection) == null) {
+                version++;
+            }
+        }
+    }
+
+    private VoiceConnection takeMember(String uuid) {
+        synchronized (membersLock) {
+            VoiceConnection connection = members.remove(uuid);
+            if (connection != null) {
+                version++;
+            }
+            return connection;
+        }
+    }
+
+    private List<VoiceConnection> takeAllMembers() {
+        synchronized (membersLock) {
+            List<VoiceConnection> taken = new ArrayList<>(members.values());
+            if (!taken.isEmpty()) {
+                members.clear();
+                version++;
+            }
+            return taken;
+        }
+    }
+
+    /*
+     * Add a connection to the conference, `event` is sent to JS once it's done.
+     */
+    public void addMember(VoiceConnection connection, String event) {
+        String uuid = connection.getCallUuid();
+        if (ended || uuid == null || members.containsKey(uuid)) {
+            return;
+        }
+
+        // `onConnectionAdded` updates the member list
+        if (!addConnection(connection)) {
+            Log.w(TAG, "[VoiceConference] addMember failed, conferenceId: " + conferenceId + ", uuid: " + uuid);
+            return;
+        }
+        attachMember(connection);
+        sendConferenceEvent(event, uuid);
+    }
+
+    /*
+     * Add the members of a merged conference: the member list is updated once for all of them,
+     * then each one gets its own `event`.
+     */
+    private void addMembers(List<VoiceConnection> connections, String event) {
+        Map<String, VoiceConnection> added = new HashMap<>();
+        for (VoiceConnection connection : connections) {
+            if (connection.getCallUuid() != null) {
+                added.put(connection.getCallUuid(), connection);
+            }
+        }
+        synchronized (membersLock) {
+            if (ended) {
+                return;
+            }
+            added.keySet().removeAll(members.keySet());
+            if (added.isEmpty()) {
+                return;
+            }
+            members.putAll(added);
+            version++;
+        }
+
+        for (Map.Entry<String, VoiceConnection> entry : added.entrySet()) {
+            if (!addConnection(entry.getValue())) {
+                Log.w(TAG, "[VoiceConference] addMembers failed, conferenceId: " + conferenceId + ", uuid: " + entry.getKey());
+                takeMember(entry.getKey());
+                continue;
+            }
+            attachMember(entry.getValue());
+            sendConferenceEvent(event, entry.getKey());
+        }
+    }
+
+    private void attachMember(VoiceConnection connection) {
+        connection.setConnectionCapabilities(connection.getConnectionCapabilities()
+            | Connection.CAPABILITY_SEPARATE_FROM_CONFERENCE | Connection.CAPABILITY_DISCONNECT_FROM_CONFERENCE);
+
+        if (isHeld) {
+            connection.setOnHold();
+        } else if (connection.getState() == Connection.STATE_HOLDING) {
+            connection.onUnhold();
+        }
+    }
+
+    /*
+     * Called when a member is separated or ended: the conference is closed when a single call remains.
+     */
+    public void removeMember(VoiceConnection connection, String event) {
+        String uuid = connection.getCallUuid();
+        if (uuid == null || takeMember(uuid) == null) {
+            return;
+        }
+
+        Log.d(TAG, "[VoiceConference] removeMember, conferenceId: " + conferenceId + ", uuid: " + uuid + ", event: " + event);
+        removeConnection(connection);
+        connection.setConnectionCapabilities(connection.getConnectionCapabilities()
+            & ~(Connection.CAPABILITY_SEPARATE_FROM_CONFERENCE | Connection.CAPABILITY_DISCONNECT_FROM_CONFERENCE));
+
+        sendConferenceEvent(event, uuid);
+
+        if (members.size() < 2) {
+            end(DisconnectCause.LOCAL);
+        }
+    }
+
+    /*
+     * Move every member to `target` when two conferences are merged, then close this one.
+     * Members only get the `merged` event of `target`, they are not reported as removed.
+     */
+    public void moveMembersTo(VoiceConference target) {
+        if (ended) {
+            return;
+        }
+        List<VoiceConnection> moved = takeAllMembers();
+        Log.d(TAG, "[VoiceConference] moveMembersTo, conferenceId: " + conferenceId + ", target: " + target.getConferenceId() + ", members: " + moved.size());
+
+        for (VoiceConnection connection : moved) {
+            removeConnection(connection);
+        }
+        target.addMembers(moved, EVENT_MERGED);
+        end(DisconnectCause.LOCAL);
     }
 
     @Override
-    public void onMerge() {
-        super.onMerge();
+    public void onConnectionAdded(Connection connection) {
+        super.onConnectionAdded(connection);
+        if (connection instanceof VoiceConnection) {
+            VoiceConnection voiceConnection = (VoiceConnection) connection;
+            if (voiceConnection.getCallUuid() != null) {
+                putMember(voiceConnection.getCallUuid(), voiceConnection);
+            }
+        }
     }
 
     @Override
     public void onSeparate(Connection connection) {
         super.onSeparate(connection);
+        Log.d(TAG, "[VoiceConference] onSeparate, conferenceId: " + conferenceId);
+
+        if (connection instanceof VoiceConnection) {
+            removeMember((VoiceConnection) connection, EVENT_SEPARATED);
+        }
     }
 
     @Override
     public void onDisconnect() {
         super.onDisconnect();
-    }
+        Log.d(TAG, "[VoiceConference] onDisconnect, conferenceId: " + conferenceId);
 
-    @Override
-    public void onConnectionAdded(Connection connection) {
-        super.onConnectionAdded(connection);
+        // Members remove themselves from the conference when they're disconnected
+        for (VoiceConnection connection : members.values()) {
+            connection.onDisconnect();
+        }
+        end(DisconnectCause.LOCAL);
     }
 
     @Override
     public void onHold() {
         super.onHold();
+        setHeld(true);
     }
 
     @Override
     public void onUnhold() {
         super.onUnhold();
+        setHeld(false);
+    }
+
+    public void setHeld(boolean held) {
+        if (ended || isHeld == held) {
+            return;
+        }
+        isHeld = held;
+
+        for (VoiceConnection connection : members.values()) {
+            if (held) {
+                connection.onHold();
+            } else {
+                connection.onUnhold();
+            }
+        }
+
+        if (held) {
+            setOnHold();
+        } else {
+            setActive();
+        }
+        sendConferenceEvent(held ? EVENT_HELD : EVENT_UNHELD, null);
+    }
+
+    public void setMuted(boolean muted) {
+        if (ended || isMuted == muted) {
+            return;
+        }
+        isMuted = muted;
+
+        for (VoiceConnection connection : members.values()) {
+            CallAudioState audioState = connection.getCallAudioState();
+            if (audioState != null) {
+                connection.onCallAudioStateChanged(new CallAudioState(muted, audioState.getRoute(), audioState.getSupportedRouteMask()));
+            }
+        }
+        sendConferenceEvent(muted ? EVENT_MUTED : EVENT_UNMUTED, null);
+    }
+
+    private void end(int cause) {
+        List<VoiceConnection> removed;
+        synchronized (membersLock) {
+            if (ended) {
+                return;
+            }
+            ended = true;
+            removed = takeAllMembers();
+        }
+        Log.d(TAG, "[VoiceConference] end, conferenceId: " + conferenceId);
+
+        for (VoiceConnection connection : removed) {
+            removeConnection(connection);
+        }
+
+        setDisconnected(new DisconnectCause(cause));
+        VoiceConnectionService.removeConference(conferenceId);
+        sendConferenceEvent(EVENT_ENDED, null);
+        destroy();
+    }
+
+    private void sendConferenceEvent(String event, String uuid) {
+        HashMap<String, String> attributeMap = new HashMap<>();
+        attributeMap.put(EXTRA_CONFERENCE_ID, conferenceId);
+        attributeMap.put(EXTRA_CONFERENCE_EVENT, event);
+        attributeMap.put(EXTRA_CONFERENCE_MEMBER_COUNT, String.valueOf(members.size()));
+        attributeMap.put(EXTRA_CONFERENCE_VERSION, String.valueOf(getVersion()));
+        attributeMap.put(EXTRA_CONFERENCE_HOLD, String.valueOf(isHeld));
+        attributeMap.put(EXTRA_CONFERENCE_MUTED, String.valueOf(isMuted));
+        if (uuid != null) {
+            attributeMap.put(EXTRA_CALL_UUID, uuid);
+        }
+        sendCallRequestToActivity(ACTION_CONFERENCE_CHANGED, attributeMap);
+    }
+
+    /*
+     * Send conference request to the RNCallKeepModule
+     */
+    private void sendCallRequestToActivity(final String action, final HashMap<String, String> attributeMap) {
+        new Handler(Looper.getMainLooper()).post(new Runnable() {
+            @Override
+            public void run() {
+                Intent intent = new Intent(action);
+                Bundle extras = new Bundle();
+                extras.putSerializable("attributeMap", attributeMap);
+                intent.putExtras(extras);
+                if (!LocalBroadcastManager.getInstance(context).sendBroadcast(intent)) {
+                    CallKeepStats.increment(CallKeepStats.EVENTS_DROPPED);
+                }
+            }
+        });
     }
 }
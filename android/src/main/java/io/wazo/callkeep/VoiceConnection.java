@@ -40,6 +40,8 @@ import java.util.HashMap;
 import static io.wazo.callkeep.Constants.ACTION_ANSWER_CALL;
 import static io.wazo.callkeep.Constants.ACTION_AUDIO_SESSION;
 import static io.wazo.callkeep.Constants.ACTION_DTMF_TONE;
+import static io.wazo.callkeep.Constants.ACTION_DTMF_SEQUENCE_COMPLETED;
+import static io.wazo.callkeep.Constants.ACTION_DTMF_SEQUENCE_PROGRESS;
 import static io.wazo.callkeep.Constants.ACTION_END_CALL;
 import static io.wazo.callkeep.Constants.ACTION_HOLD_CALL;
 import static io.wazo.callkeep.Constants.ACTION_MUTE_CALL;
@@ -55,16 +57,17 @@ import static io.wazo.callkeep.Constants.ACTION_DID_CHANGE_AUDIO_ROUTE;
 @TargetApi(Build.VERSION_CODES.M)
 public class VoiceConnection extends Connection {
     private boolean isMuted = false;
-    private boolean answered = false;
-    private boolean rejected = false;
+    private final ConnectionLifecycle lifecycle;
     private HashMap<String, String> handle;
     private Context context;
+    private volatile DtmfSequenceSender dtmfSender;
     private static final String TAG = "RNCallKeep";
 
     VoiceConnection(Context context, HashMap<String, String> handle) {
         super();
         this.handle = handle;
         this.context = context;
+        this.lifecycle = new ConnectionLifecycle(handle.get(EXTRA_CALL_UUID));
 
         String number = handle.get(EXTRA_CALL_NUMBER);
         String name = handle.get(EXTRA_CALLER_NAME);
@@ -77,6 +80,31 @@ public class VoiceConnection extends Connection {
         }
     }
 
+    public String getCallUuid() {
+        return handle.get(EXTRA_CALL_UUID);
+    }
+
+    public ConnectionLifecycle.State getLifecycleState() {
+        return lifecycle.getState();
+    }
+
+    public HashMap<String, String> getAttributes() {
+        return new HashMap<>(handle);
+    }
+
+    public String getCallNumber() {
+        return handle.get(EXTRA_CALL_NUMBER);
+    }
+
+    @Nullable
+    public Bundle getPayload() {
+        return CallPayloadStore.get(getCallUuid());
+    }
+
+    public String getCallerName() {
+        return handle.get(EXTRA_CALLER_NAME);
+    }
+
     @Override
     public void onExtrasChanged(Bundle extras) {
         super.onExtrasChanged(extras);
@@ -91,6 +119,7 @@ public class VoiceConnection extends Connection {
         Log.d(TAG, "[VoiceConnection] onCallAudioStateChanged muted :" + (state.isMuted() ? "true" : "false"));
 
         handle.put("output", CallAudioState.audioRouteToString(state.getRoute()));
+        CallStateRegistry.onAudioStateChanged(handle.get(EXTRA_CALL_UUID), state.isMuted(), handle.get("output"));
         sendCallRequestToActivity(ACTION_DID_CHANGE_AUDIO_ROUTE, handle);
 
         if (state.isMuted() == this.isMuted) {
@@ -128,22 +157,77 @@ public class VoiceConnection extends Connection {
         sendCallRequestToActivity(ACTION_DTMF_TONE, handle);
     }
 
+    public synchronized void sendDtmfSequence(String digits, int toneDuration, int gapDuration, int batchSize, boolean waitForAck) {
+        if (dtmfSender == null) {
+            dtmfSender = new DtmfSequenceSender(new DtmfSequenceSender.Listener() {
+                // Same event as a digit typed on the native dialer, for the app to send it in the call media
+                @Override
+                public void onDtmfDigit(char digit, int toneDuration, int gapDuration) {
+                    HashMap<String, String> attributeMap = new HashMap<>(handle);
+                    attributeMap.put("DTMF", Character.toString(digit));
+                    attributeMap.put("DTMF_TONE_DURATION", String.valueOf(toneDuration));
+                    attributeMap.put("DTMF_GAP_DURATION", String.valueOf(gapDuration));
+                    sendCallRequestToActivity(ACTION_DTMF_TONE, attributeMap);
+                }
+
+                @Override
+                public void onDtmfProgress(String digits, int sent, int total) {
+                    HashMap<String, String> attributeMap = dtmfAttributeMap(digits, sent, total);
+                    sendCallRequestToActivity(ACTION_DTMF_SEQUENCE_PROGRESS, attributeMap);
+                }
+
+                @Override
+                public void onDtmfCompleted(String digits, int sent, int total, boolean cancelled) {
+                    HashMap<String, String> attributeMap = dtmfAttributeMap(digits, sent, total);
+                    attributeMap.put("DTMF_CANCELLED", String.valueOf(cancelled));
+                    sendCallRequestToActivity(ACTION_DTMF_SEQUENCE_COMPLETED, attributeMap);
+                }
+            });
+        }
+        dtmfSender.enqueue(digits, toneDuration, gapDuration, batchSize, waitForAck);
+    }
+
+    public void acknowledgeDtmf() {
+        if (dtmfSender != null) {
+            dtmfSender.acknowledge();
+        }
+    }
+
+    public void cancelDtmfSequence() {
+        if (dtmfSender != null) {
+            dtmfSender.cancel();
+        }
+    }
+
+    private HashMap<String, String> dtmfAttributeMap(String digits, int sent, int total) {
+        HashMap<String, String> attributeMap = new HashMap<>(handle);
+        attributeMap.put("DTMF", digits);
+        attributeMap.put("DTMF_SENT", String.valueOf(sent));
+        attributeMap.put("DTMF_TOTAL", String.valueOf(total));
+        attributeMap.put("DTMF_TONE_DURATION", String.valueOf(dtmfSender.getToneDuration()));
+        attributeMap.put("DTMF_GAP_DURATION", String.valueOf(dtmfSender.getGapDuration()));
+        return attributeMap;
+    }
+
     @Override
     public void onDisconnect() {
         super.onDisconnect();
+        if (!lifecycle.beginTeardown("onDisconnect")) {
+            return;
+        }
+        cancelDtmfSequence();
         setDisconnected(new DisconnectCause(DisconnectCause.LOCAL));
         sendCallRequestToActivity(ACTION_END_CALL, handle);
         Log.d(TAG, "[VoiceConnection] onDisconnect executed");
-        try {
-            ((VoiceConnectionService) context).deinitConnection(handle.get(EXTRA_CALL_UUID));
-        } catch(Throwable exception) {
-            Log.e(TAG, "[VoiceConnection] onDisconnect handle map error", exception);
-        }
-        destroy();
+        endTeardown("onDisconnect");
     }
 
     public void reportDisconnect(int reason) {
         super.onDisconnect();
+        if (!lifecycle.beginTeardown("reportDisconnect")) {
+            return;
+        }
+        cancelDtmfSequence();
         switch (reason) {
             case 1:
                 setDisconnected(new DisconnectCause(DisconnectCause.ERROR));
@@ -164,22 +248,20 @@ public class VoiceConnection extends Connection {
             default:
                 break;
         }
-        ((VoiceConnectionService)context).deinitConnection(handle.get(EXTRA_CALL_UUID));
-        destroy();
+        endTeardown("reportDisconnect");
     }
 
     @Override
     public void onAbort() {
         super.onAbort();
+        if (!lifecycle.beginTeardown("onAbort")) {
+            return;
+        }
+        cancelDtmfSequence();
         setDisconnected(new DisconnectCause(DisconnectCause.REJECTED));
         sendCallRequestToActivity(ACTION_END_CALL, handle);
         Log.d(TAG, "[VoiceConnection] onAbort executed");
-        try {
-            ((VoiceConnectionService) context).deinitConnection(handle.get(EXTRA_CALL_UUID));
-        } catch(Throwable exception) {
-            Log.e(TAG, "[VoiceConnection] onAbort handle map error", exception);
-        }
-        destroy();
+        endTeardown("onAbort");
     }
 
     @Override
@@ -267,6 +349,8 @@ public class VoiceConnection extends Connection {
         super.onStateChanged(state);
 
         Log.d(TAG, "[VoiceConnection] onStateChanged called, state : " + state);
+        CallStateRegistry.onStateChanged(handle.get(EXTRA_CALL_UUID), state);
+        ActiveCallJournal.onStateChanged(context, handle.get(EXTRA_CALL_UUID), state);
     }
 
     @Override
@@ -297,43 +381,60 @@ public class VoiceConnection extends Connection {
     }
 
     private void _onAnswer(int videoState) {
-        Log.d(TAG, "[VoiceConnection] onAnswer called, videoState: " + videoState + ", answered: " + answered);
+        Log.d(TAG, "[VoiceConnection] onAnswer called, videoState: " + videoState + ", state: " + lifecycle.getState());
         // On some device (like Huawei P30 lite), both onAnswer() and onAnswer(int) are called
         // we have to trigger the callback only once
-        if (answered) {
+        if (!lifecycle.answer("onAnswer")) {
             return;
         }
-        answered = true;
+        IncomingCallNotification.cancel(context, getCallUuid());
 
         setConnectionCapabilities(getConnectionCapabilities() | Connection.CAPABILITY_HOLD);
         setAudioModeIsVoip(true);
+        CallPolicy.onCallActivated(this, VoiceConnectionService.currentConnections.values());
 
         sendCallRequestToActivity(ACTION_ANSWER_CALL, handle);
-        sendCallRequestToActivity(ACTION_AUDIO_SESSION, handle);
+        if (AudioSessionManager.acquire(getCallUuid())) {
+            sendCallRequestToActivity(ACTION_AUDIO_SESSION, handle);
+        }
+        // Ended by another thread meanwhile: its teardown may have released the audio session before it was acquired
+        if (lifecycle.getState() != ConnectionLifecycle.State.ANSWERED) {
+            VoiceConnectionService.releaseAudioSession(getCallUuid());
+        }
         Log.d(TAG, "[VoiceConnection] onAnswer executed");
     }
 
     private void _onReject(int rejectReason, String replyMessage) {
-        Log.d(TAG, "[VoiceConnection] onReject executed, rejectReason: " + rejectReason + ", replyMessage: " + replyMessage + ", rejected:" + rejected);
-        if (rejected) {
+        Log.d(TAG, "[VoiceConnection] onReject executed, rejectReason: " + rejectReason + ", replyMessage: " + replyMessage + ", state: " + lifecycle.getState());
+        if (!lifecycle.beginTeardown("onReject")) {
             return;
         }
-        rejected = true;
 
+        cancelDtmfSequence();
         setDisconnected(new DisconnectCause(DisconnectCause.REJECTED));
         sendCallRequestToActivity(ACTION_END_CALL, handle);
         Log.d(TAG, "[VoiceConnection] onReject executed");
+        endTeardown("onReject");
+    }
+
+    // Shared end of every teardown path, only reached once per connection
+    private void endTeardown(String trigger) {
+        String uuid = handle.get(EXTRA_CALL_UUID);
+        IncomingCallNotification.cancel(context, uuid);
         try {
-            ((VoiceConnectionService) context).deinitConnection(handle.get(EXTRA_CALL_UUID));
+            ((VoiceConnectionService) context).deinitConnection(uuid);
         } catch(Throwable exception) {
-            Log.e(TAG, "[VoiceConnection] onReject, handle map error", exception);
+            Log.e(TAG, "[VoiceConnection] " + trigger + ", handle map error", exception);
         }
         destroy();
+        lifecycle.endTeardown(trigger, VoiceConnectionService.currentConnections.get(uuid) == this);
     }
 
     @Override
     public void onShowIncomingCallUi() {
         Log.d(TAG, "[VoiceConnection] onShowIncomingCallUi");
+        // The native notification is displayed right away, JS may not be running yet
+        IncomingCallNotification.show(context, getCallUuid(), getCallerName(), getCallNumber());
         sendCallRequestToActivity(ACTION_SHOW_INCOMING_CALL_UI, handle);
     }
 
@@ -344,6 +445,14 @@ public class VoiceConnection extends Connection {
         final VoiceConnection instance = this;
         final Handler handler = new Handler();
 
+        // Listeners without executor run synchronously in the Telecom callback
+        boolean dispatchTraced = CallKeepTrace.beginSection("dispatchCallEvent", action);
+        try {
+            CallEventListeners.dispatch(action, attributeMap);
+        } finally {
+            CallKeepTrace.endSection(dispatchTraced);
+        }
+
         handler.post(new Runnable() {
             @Override
             public void run() {
@@ -353,7 +462,16 @@ public class VoiceConnection extends Connection {
                     extras.putSerializable("attributeMap", attributeMap);
                     intent.putExtras(extras);
                 }
-                LocalBroadcastManager.getInstance(context).sendBroadcast(intent);
+                boolean result;
+                boolean traced = CallKeepTrace.beginSection("sendCallRequestToActivity", action);
+                try {
+                    result = LocalBroadcastManager.getInstance(context).sendBroadcast(intent);
+                } finally {
+                    CallKeepTrace.endSection(traced);
+                }
+                if (!result) {
+                    CallKeepStats.increment(CallKeepStats.EVENTS_DROPPED);
+                }
             }
         });
     }
@@ -28,7 +28,6 @@ import android.app.Activity;
 import android.content.res.Resources;
 import android.content.Intent;
 import android.content.Context;
-import android.content.ComponentName;
 import android.net.Uri;
 import android.os.Build;
 import android.os.Bundle;
@@ -48,20 +47,25 @@ import android.telecom.PhoneAccountHandle;
 import android.telecom.TelecomManager;
 import android.util.Log;
 
-import com.facebook.react.HeadlessJsTaskService;
 import com.facebook.react.bridge.ReadableMap;
 import com.facebook.react.bridge.WritableMap;
 
+import java.io.FileDescriptor;
+import java.io.PrintWriter;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
 
 import static io.wazo.callkeep.Constants.ACTION_AUDIO_SESSION;
+import static io.wazo.callkeep.Constants.ACTION_AUDIO_SESSION_DEACTIVATED;
 import static io.wazo.callkeep.Constants.ACTION_ONGOING_CALL;
 import static io.wazo.callkeep.Constants.ACTION_CHECK_REACHABILITY;
 import static io.wazo.callkeep.Constants.ACTION_WAKE_APP;
@@ -85,19 +89,43 @@ public class VoiceConnectionService extends ConnectionService {
     private static PhoneAccountHandle phoneAccountHandle;
     private static String TAG = "RNCallKeep";
     private static int NOTIFICATION_ID = -4567;
+    private static Notification foregroundNotification;
 
     // Delay events sent to RNCallKeepModule when there is no listener available
     private static List<Bundle> delayedEvents = new ArrayList<Bundle>();
 
-    public static Map<String, VoiceConnection> currentConnections = new HashMap<>();
+    // Keeps the creation order of the connections.
+    // Read-only snapshots replaced on each change: Telecom (main thread) and the React Native module thread
+    // both iterate them, so readers never see a map being modified.
+    public static volatile Map<String, VoiceConnection> currentConnections = Collections.unmodifiableMap(new LinkedHashMap<String, VoiceConnection>());
+    public static volatile Map<String, VoiceConference> currentConferences = Collections.unmodifiableMap(new HashMap<String, VoiceConference>());
     public static Boolean hasOutgoingCall = false;
     public static VoiceConnectionService currentConnectionService = null;
 
     public static Connection getConnection(String connectionId) {
-        if (currentConnections.containsKey(connectionId)) {
-            return currentConnections.get(connectionId);
+        return currentConnections.get(connectionId);
+    }
+
+    static synchronized void putConnection(String uuid, VoiceConnection connection) {
+        Map<String, VoiceConnection> connections = new LinkedHashMap<>(currentConnections);
+        connections.put(uuid, connection);
+        currentConnections = Collections.unmodifiableMap(connections);
+    }
+
+    private static synchronized VoiceConnection removeConnection(String uuid) {
+        if (!currentConnections.containsKey(uuid)) {
+            return null;
         }
-        return null;
+        Map<String, VoiceConnection> connections = new LinkedHashMap<>(currentConnections);
+        VoiceConnection connection = connections.remove(uuid);
+        currentConnections = Collections.unmodifiableMap(connections);
+        return connection;
+    }
+
+    private static synchronized void putConference(String conferenceId, VoiceConference conference) {
+        Map<String, VoiceConference> conferences = new HashMap<>(currentConferences);
+        conferences.put(conferenceId, conference);
+        currentConferences = Collections.unmodifiableMap(conferences);
     }
 
     public VoiceConnectionService() {
@@ -107,6 +135,51 @@ public class VoiceConnectionService extends ConnectionService {
         currentConnectionService = this;
     }
 
+    @Override
+    public void onDestroy() {
+        Log.d(TAG, "[VoiceConnectionService] onDestroy");
+        super.onDestroy();
+
+        // Connections and conferences hold this service as their context, don't keep them past its lifetime
+        if (currentConnectionService != this) {
+            return;
+        }
+        // Same cleanup as an ended call, so audio, state and journal entries don't outlive the service
+        for (String uuid : currentConnections.keySet()) {
+            deinitConnection(uuid);
+        }
+        currentConnectionService = null;
+        synchronized (VoiceConnectionService.class) {
+            currentConnections = Collections.unmodifiableMap(new LinkedHashMap<String, VoiceConnection>());
+            currentConferences = Collections.unmodifiableMap(new HashMap<String, VoiceConference>());
+        }
+    }
+
+    // Appended to `adb shell dumpsys activity service io.wazo.callkeep.VoiceConnectionService`
+    @Override
+    protected void dump(FileDescriptor fd, PrintWriter writer, String[] args) {
+        super.dump(fd, writer, args);
+        CallKeepStats.dump(writer);
+    }
+
+    /*
+     * Calls `listener` on `executor` for each call event, in addition to the JS events.
+     * Without executor, `listener` is called synchronously from the Telecom callback (main thread): it must not block.
+     */
+    public static void addCallEventListener(CallEventListener listener, @Nullable Executor executor) {
+        CallEventListeners.add(listener, executor);
+    }
+
+    public static void removeCallEventListener(CallEventListener listener) {
+        CallEventListeners.remove(listener);
+    }
+
+    // Payload given to `displayIncomingCall` or `startCall`, see `CallPayloadStore`
+    @Nullable
+    public static Bundle getCallPayload(String uuid) {
+        return CallPayloadStore.get(uuid);
+    }
+
     public static void setPhoneAccountHandle(PhoneAccountHandle phoneAccountHandle) {
         VoiceConnectionService.phoneAccountHandle = phoneAccountHandle;
     }
@@ -156,10 +229,32 @@ public class VoiceConnectionService extends ConnectionService {
         Log.d(TAG, "[VoiceConnectionService] deinitConnection:" + connectionId);
         VoiceConnectionService.hasOutgoingCall = false;
 
-        currentConnectionService.stopForegroundService();
+        if (currentConnectionService != null) {
+            currentConnectionService.stopForegroundService();
+        }
+
+        VoiceConnection connection = removeConnection(connectionId);
+        if (connection != null && connection.getConference() instanceof VoiceConference) {
+            ((VoiceConference) connection.getConference()).removeMember(connection, VoiceConference.EVENT_REMOVED);
+        }
+        CallStateRegistry.CallState call = CallStateRegistry.onRemoved(connectionId);
+        CallHistoryStore.onCallEnded(currentConnectionService, call, connection);
+        EndedCallCache.onCallEnded(call, connection);
+        ActiveCallJournal.onRemoved(currentConnectionService, connectionId);
+        CallPayloadStore.remove(connectionId);
+        releaseAudioSession(connectionId);
+    }
 
-        if (currentConnections.containsKey(connectionId)) {
-            currentConnections.remove(connectionId);
+    /*
+     * Release the audio session of a call. Only the last call using audio resets the audio mode,
+     * JS is then told so, to match the `didActivateAudioSession` it got.
+     */
+    static void releaseAudioSession(String uuid) {
+        VoiceConnectionService service = currentConnectionService;
+        if (AudioSessionManager.release(service, uuid) && service != null) {
+            HashMap<String, String> attributeMap = new HashMap<>();
+            attributeMap.put(EXTRA_CALL_UUID, uuid);
+            service.sendCallRequestToActivity(ACTION_AUDIO_SESSION_DEACTIVATED, attributeMap, true);
         }
     }
 
@@ -191,6 +286,15 @@ public class VoiceConnectionService extends ConnectionService {
 
     @Override
     public Connection onCreateIncomingConnection(PhoneAccountHandle connectionManagerPhoneAccount, ConnectionRequest request) {
+        boolean traced = CallKeepTrace.beginSection("onCreateIncomingConnection");
+        try {
+            return createIncomingConnection(request);
+        } finally {
+            CallKeepTrace.endSection(traced);
+        }
+    }
+
+    private Connection createIncomingConnection(ConnectionRequest request) {
         final Bundle extra = request.getExtras();
         Uri number = request.getAddress();
         String name = extra.getString(EXTRA_CALLER_NAME);
@@ -202,10 +306,27 @@ public class VoiceConnectionService extends ConnectionService {
         Log.d(TAG, "[VoiceConnectionService] onCreateIncomingConnection, name:" + name + ", number" + number +
             ", isForeground: " + isForeground + ", isReachable:" + isReachable + ", timeout: " + timeout);
 
+        String decision = CallPolicy.onCreateConnection(callUUID, false, currentConnections.values());
+        if (!CallPolicy.DECISION_ACCEPT.equals(decision)) {
+            Log.w(TAG, "[VoiceConnectionService] onCreateIncomingConnection rejected by call policy: " + decision + ", uuid: " + callUUID);
+            HashMap<String, String> extrasMap = this.requestToMap(request);
+            extrasMap.put("reason", decision);
+            sendCallRequestToActivity(ACTION_ON_CREATE_CONNECTION_FAILED, extrasMap, true);
+            CallKeepStats.increment(CallKeepStats.CONNECTIONS_FAILED);
+            return Connection.createFailedConnection(new DisconnectCause(DisconnectCause.BUSY));
+        }
+
         Connection incomingCallConnection = createConnection(request);
+        CallStateRegistry.onCreated(callUUID, false);
+        ActiveCallJournal.onCreated(this, callUUID, false, number != null ? number.getSchemeSpecificPart() : null);
         incomingCallConnection.setRinging();
         incomingCallConnection.setInitialized();
 
+        // Build the React instance while the call is ringing instead of after the reachability timeout
+        if (!isReachable) {
+            ReactInstancePrewarmer.prewarm(this);
+        }
+
         startForegroundService();
 
         if (timeout != null) {
@@ -243,7 +364,8 @@ public class VoiceConnectionService extends ConnectionService {
         String number = request.getAddress().getSchemeSpecificPart();
         String extrasNumber = extras.getString(EXTRA_CALL_NUMBER);
         String displayName = extras.getString(EXTRA_CALLER_NAME);
-        Boolean isForeground = VoiceConnectionService.isRunning(this.getApplicationContext());
+        // A call placed by `startCall` comes from a running app, no need to look for its activity
+        Boolean isForeground = OutgoingCallPreparer.isPlacedFromApp(uuid) || VoiceConnectionService.isRunning(this.getApplicationContext());
 
         Log.d(TAG, "[VoiceConnectionService] makeOutgoingCall, uuid:" + uuid + ", number: " + number + ", displayName:" + displayName);
 
@@ -253,10 +375,17 @@ public class VoiceConnectionService extends ConnectionService {
             this.wakeUpApplication(uuid, number, displayName);
         } else if (!this.canMakeOutgoingCall() && isReachable) {
             Log.d(TAG, "[VoiceConnectionService] onCreateOutgoingConnection: not available");
+            CallKeepStats.increment(CallKeepStats.CONNECTIONS_FAILED);
             return Connection.createFailedConnection(new DisconnectCause(DisconnectCause.LOCAL));
         }
 
-        // TODO: Hold all other calls
+        String decision = CallPolicy.onCreateConnection(uuid, true, currentConnections.values());
+        if (!CallPolicy.DECISION_ACCEPT.equals(decision)) {
+            Log.w(TAG, "[VoiceConnectionService] onCreateOutgoingConnection rejected by call policy: " + decision);
+            CallKeepStats.increment(CallKeepStats.CONNECTIONS_FAILED);
+            return Connection.createFailedConnection(new DisconnectCause(DisconnectCause.LOCAL, decision));
+        }
+
         if (extrasNumber == null || !extrasNumber.equals(number)) {
             extras.putString(EXTRA_CALL_UUID, uuid);
             extras.putString(EXTRA_CALLER_NAME, displayName);
@@ -269,7 +398,11 @@ public class VoiceConnectionService extends ConnectionService {
         }
 
         outgoingCallConnection = createConnection(request);
+        CallStateRegistry.onCreated(uuid, true);
+        ActiveCallJournal.onCreated(this, uuid, true, number);
+        CallPolicy.onCallActivated((VoiceConnection) outgoingCallConnection, currentConnections.values());
         outgoingCallConnection.setDialing();
+        OutgoingCallPreparer.onDialing(uuid);
         outgoingCallConnection.setAudioModeIsVoip(true);
         outgoingCallConnection.setCallerDisplayName(displayName, TelecomManager.PRESENTATION_ALLOWED);
 
@@ -282,10 +415,13 @@ public class VoiceConnectionService extends ConnectionService {
             outgoingCallConnection.setInitialized();
         }
 
-        HashMap<String, String> extrasMap = this.bundleToMap(extras);
+        // Same attributes as the connection, without converting the extras again
+        HashMap<String, String> extrasMap = ((VoiceConnection) outgoingCallConnection).getAttributes();
 
         sendCallRequestToActivity(ACTION_ONGOING_CALL, extrasMap, true);
-        sendCallRequestToActivity(ACTION_AUDIO_SESSION, extrasMap, true);
+        if (AudioSessionManager.acquire(uuid)) {
+            sendCallRequestToActivity(ACTION_AUDIO_SESSION, extrasMap, true);
+        }
 
         Log.d(TAG, "[VoiceConnectionService] onCreateOutgoingConnection: done");
 
@@ -293,60 +429,96 @@ public class VoiceConnectionService extends ConnectionService {
     }
 
     private void startForegroundService() {
+        boolean traced = CallKeepTrace.beginSection("startForegroundService");
+        try {
+            startForegroundServiceUntraced();
+        } finally {
+            CallKeepTrace.endSection(traced);
+        }
+    }
+
+    private void startForegroundServiceUntraced() {
         if (Build.VERSION.SDK_INT < Build.VERSION_CODES.O) {
             // Foreground services not required before SDK 28
             return;
         }
         Log.d(TAG, "[VoiceConnectionService] startForegroundService");
-        ReadableMap foregroundSettings = getForegroundSettings(null);
 
         if (!this.isForegroundServiceConfigured()) {
             Log.w(TAG, "[VoiceConnectionService] Not creating foregroundService because not configured");
             return;
         }
 
+        Log.d(TAG, "[VoiceConnectionService] Starting foreground service");
+
+        Notification notification = getForegroundNotification(this);
+
+        try {
+            startForeground(FOREGROUND_SERVICE_TYPE_MICROPHONE, notification);
+            CallKeepStats.increment(CallKeepStats.FOREGROUND_SERVICE_STARTS);
+        } catch (Exception e) {
+            Log.w(TAG, "[VoiceConnectionService] Can't start foreground service : " + e.toString());
+        }
+    }
+
+    // Build the foreground notification ahead of the call, see `prepareOutgoingCall`
+    public static void prepareForegroundNotification(@Nullable Context context) {
+        if (context == null || Build.VERSION.SDK_INT < Build.VERSION_CODES.O || currentConnectionService == null || !currentConnectionService.isForegroundServiceConfigured()) {
+            return;
+        }
+        getForegroundNotification(context);
+    }
+
+    public static synchronized void invalidateForegroundNotification() {
+        foregroundNotification = null;
+    }
+
+    // The channel and the notification are created once, until the settings change.
+    // Not cached while there is no activity, so the content intent is added once one is available.
+    private static synchronized Notification getForegroundNotification(Context context) {
+        if (foregroundNotification != null) {
+            return foregroundNotification;
+        }
+
+        ReadableMap foregroundSettings = getForegroundSettings(null);
         String NOTIFICATION_CHANNEL_ID = foregroundSettings.getString("channelId");
         String channelName = foregroundSettings.getString("channelName");
         NotificationChannel chan = new NotificationChannel(NOTIFICATION_CHANNEL_ID, channelName, NotificationManager.IMPORTANCE_NONE);
         chan.setLockscreenVisibility(Notification.VISIBILITY_PRIVATE);
-        NotificationManager manager = (NotificationManager) getSystemService(Context.NOTIFICATION_SERVICE);
+        NotificationManager manager = (NotificationManager) context.getSystemService(Context.NOTIFICATION_SERVICE);
         assert manager != null;
         manager.createNotificationChannel(chan);
 
-        NotificationCompat.Builder notificationBuilder = new NotificationCompat.Builder(this, NOTIFICATION_CHANNEL_ID);
+        NotificationCompat.Builder notificationBuilder = new NotificationCompat.Builder(context, NOTIFICATION_CHANNEL_ID);
         notificationBuilder.setOngoing(true)
             .setContentTitle(foregroundSettings.getString("notificationTitle"))
             .setPriority(NotificationManager.IMPORTANCE_MIN)
             .setCategory(Notification.CATEGORY_SERVICE);
 
-        Activity currentActivity = RNCallKeepModule.instance.getCurrentReactActivity();
+        Activity currentActivity = RNCallKeepModule.instance != null ? RNCallKeepModule.instance.getCurrentReactActivity() : null;
         if (currentActivity != null) {
-            Intent notificationIntent = new Intent(this, currentActivity.getClass());
+            Intent notificationIntent = new Intent(context, currentActivity.getClass());
             notificationIntent.addFlags(Intent.FLAG_ACTIVITY_SINGLE_TOP);
 
             final int flag =  Build.VERSION.SDK_INT >= Build.VERSION_CODES.M ? PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE : PendingIntent.FLAG_UPDATE_CURRENT;
 
-            PendingIntent pendingIntent = PendingIntent.getActivity(this, NOTIFICATION_ID, notificationIntent, flag);
+            PendingIntent pendingIntent = PendingIntent.getActivity(context, NOTIFICATION_ID, notificationIntent, flag);
 
             notificationBuilder.setContentIntent(pendingIntent);
         }
 
         if (foregroundSettings.hasKey("notificationIcon")) {
-            Context context = this.getApplicationContext();
-            Resources res = context.getResources();
+            Context appContext = context.getApplicationContext();
+            Resources res = appContext.getResources();
             String smallIcon = foregroundSettings.getString("notificationIcon");
-            notificationBuilder.setSmallIcon(res.getIdentifier(smallIcon, "mipmap", context.getPackageName()));
+            notificationBuilder.setSmallIcon(res.getIdentifier(smallIcon, "mipmap", appContext.getPackageName()));
         }
 
-        Log.d(TAG, "[VoiceConnectionService] Starting foreground service");
-
         Notification notification = notificationBuilder.build();
-
-        try {
-            startForeground(FOREGROUND_SERVICE_TYPE_MICROPHONE, notification);
-        } catch (Exception e) {
-            Log.w(TAG, "[VoiceConnectionService] Can't start foreground service : " + e.toString());
+        if (currentActivity != null) {
+            foregroundNotification = notification;
         }
+        return notification;
     }
 
     private void stopForegroundService() {
@@ -382,23 +554,8 @@ public class VoiceConnectionService extends ConnectionService {
         // Avoid to call wake up the app again in wakeUpAfterReachabilityTimeout.
         this.currentConnectionRequest = null;
 
-        try {
-            Intent headlessIntent = new Intent(
-                this.getApplicationContext(),
-                RNCallKeepBackgroundMessagingService.class
-            );
-            headlessIntent.putExtra("callUUID", uuid);
-            headlessIntent.putExtra("name", displayName);
-            headlessIntent.putExtra("handle", number);
-
-            ComponentName name = this.getApplicationContext().startService(headlessIntent);
-            if (name != null) {
-              Log.d(TAG, "[VoiceConnectionService] wakeUpApplication, acquiring lock for application:" + name);
-              HeadlessJsTaskService.acquireWakeLockNow(this.getApplicationContext());
-            }
-        } catch (Exception e) {
-          Log.w(TAG, "[VoiceConnectionService] wakeUpApplication, error" + e.toString());
-        }
+        CallKeepStats.increment(CallKeepStats.WAKE_UPS);
+        RNCallKeepBackgroundMessagingService.wakeUp(this, uuid, displayName, number);
     }
 
     private void wakeUpAfterReachabilityTimeout(ConnectionRequest request) {
@@ -409,6 +566,7 @@ public class VoiceConnectionService extends ConnectionService {
         String number = request.getAddress().getSchemeSpecificPart();
         String displayName = extras.getString(EXTRA_CALLER_NAME);
         Log.d(TAG, "[VoiceConnectionService] checkReachability timeout, force wakeup, number :" + number + ", displayName: " + displayName);
+        CallKeepStats.increment(CallKeepStats.REACHABILITY_TIMEOUTS);
 
         wakeUpApplication(this.notReachableCallUuid, number, displayName);
 
@@ -434,6 +592,15 @@ public class VoiceConnectionService extends ConnectionService {
     }
 
     private Connection createConnection(ConnectionRequest request) {
+        boolean traced = CallKeepTrace.beginSection("createConnection");
+        try {
+            return createVoiceConnection(request);
+        } finally {
+            CallKeepTrace.endSection(traced);
+        }
+    }
+
+    private Connection createVoiceConnection(ConnectionRequest request) {
         Bundle extras = request.getExtras();
         if (request.getAddress() == null) {
             return null;
@@ -475,7 +642,9 @@ public class VoiceConnectionService extends ConnectionService {
 
         connection.setInitializing();
         connection.setExtras(extras);
-        currentConnections.put(extras.getString(EXTRA_CALL_UUID), connection);
+        putConnection(extras.getString(EXTRA_CALL_UUID), connection);
+        CallPayloadStore.onConnectionCreated(extras.getString(EXTRA_CALL_UUID));
+        CallKeepStats.increment(CallKeepStats.CONNECTIONS_CREATED);
 
         // Get other connections for conferencing
         Map<String, VoiceConnection> otherConnections = new HashMap<>();
@@ -494,26 +663,91 @@ public class VoiceConnectionService extends ConnectionService {
     public void onConference(Connection connection1, Connection connection2) {
         Log.d(TAG, "[VoiceConnectionService] onConference");
         super.onConference(connection1, connection2);
-        VoiceConnection voiceConnection1 = (VoiceConnection) connection1;
-        VoiceConnection voiceConnection2 = (VoiceConnection) connection2;
 
-        VoiceConference voiceConference = new VoiceConference(phoneAccountHandle);
-        voiceConference.addConnection(voiceConnection1);
-        voiceConference.addConnection(voiceConnection2);
+        this.mergeConnections((VoiceConnection) connection1, (VoiceConnection) connection2);
+    }
 
-        connection1.onUnhold();
-        connection2.onUnhold();
+    public static VoiceConference getConference(String conferenceId) {
+        return currentConferences.get(conferenceId);
+    }
 
+    public static synchronized void removeConference(String conferenceId) {
+        if (!currentConferences.containsKey(conferenceId)) {
+            return;
+        }
+        Map<String, VoiceConference> conferences = new HashMap<>(currentConferences);
+        conferences.remove(conferenceId);
+        currentConferences = Collections.unmodifiableMap(conferences);
+    }
+
+    // Merge two calls, joining the existing conference of one of them when there is one.
+    public static VoiceConference mergeCalls(String uuid1, String uuid2) {
+        VoiceConnection connection1 = currentConnections.get(uuid1);
+        VoiceConnection connection2 = currentConnections.get(uuid2);
+        if (connection1 == null || connection2 == null || currentConnectionService == null) {
+            Log.w(TAG, "[VoiceConnectionService] mergeCalls ignored because no connection found, uuids: " + uuid1 + ", " + uuid2);
+            return null;
+        }
+
+        return currentConnectionService.mergeConnections(connection1, connection2);
+    }
+
+    public static boolean separateCall(String uuid) {
+        VoiceConnection connection = currentConnections.get(uuid);
+        if (connection == null || !(connection.getConference() instanceof VoiceConference)) {
+            Log.w(TAG, "[VoiceConnectionService] separateCall ignored because no conference found, uuid: " + uuid);
+            return false;
+        }
+
+        ((VoiceConference) connection.getConference()).onSeparate(connection);
+        return true;
+    }
+
+    private VoiceConference mergeConnections(VoiceConnection connection1, VoiceConnection connection2) {
+        VoiceConference conference1 = connection1.getConference() instanceof VoiceConference ? (VoiceConference) connection1.getConference() : null;
+        VoiceConference conference2 = connection2.getConference() instanceof VoiceConference ? (VoiceConference) connection2.getConference() : null;
+
+        if (conference1 != null && conference1 == conference2) {
+            return conference1;
+        }
+
+        // Only the call joining an existing conference is added, members already in it are left untouched.
+        if (conference1 != null && conference2 == null) {
+            conference1.addMember(connection2, VoiceConference.EVENT_MERGED);
+            return conference1;
+        }
+        if (conference2 != null && conference1 == null) {
+            conference2.addMember(connection1, VoiceConference.EVENT_MERGED);
+            return conference2;
+        }
+        if (conference1 != null) {
+            conference2.moveMembersTo(conference1);
+            return conference1;
+        }
+
+        VoiceConference voiceConference = new VoiceConference(this, phoneAccountHandle);
+        voiceConference.addMember(connection1, VoiceConference.EVENT_CREATED);
+        voiceConference.addMember(connection2, VoiceConference.EVENT_MERGED);
+
+        putConference(voiceConference.getConferenceId(), voiceConference);
         this.addConference(voiceConference);
+
+        return voiceConference;
     }
 
     @Override
     public void onCreateIncomingConnectionFailed(PhoneAccountHandle connectionManagerPhoneAccount, ConnectionRequest request) {
         super.onCreateIncomingConnectionFailed(connectionManagerPhoneAccount, request);
         Log.w(TAG, "[VoiceConnectionService] onCreateIncomingConnectionFailed: " + request);
+        CallKeepStats.increment(CallKeepStats.CONNECTIONS_FAILED);
 
-        Bundle extras = request.getExtras();
-        HashMap<String, String> extrasMap = this.bundleToMap(extras);
+        HashMap<String, String> extrasMap = this.requestToMap(request);
+
+        sendCallRequestToActivity(ACTION_ON_CREATE_CONNECTION_FAILED, extrasMap, true);
+    }
+
+    private HashMap<String, String> requestToMap(ConnectionRequest request) {
+        HashMap<String, String> extrasMap = this.bundleToMap(request.getExtras());
 
         String callerNumber = request.getAddress().toString();
         if (callerNumber.contains(":")) {
@@ -527,8 +761,11 @@ public class VoiceConnectionService extends ConnectionService {
         } else {
             extrasMap.put(EXTRA_CALL_NUMBER, callerNumber);
         }
+        return extrasMap;
+    }
 
-        sendCallRequestToActivity(ACTION_ON_CREATE_CONNECTION_FAILED, extrasMap, true);
+    public static int getDelayedEventCount() {
+        return delayedEvents.size();
     }
 
     // When a listener is available for `sendCallRequestToActivity`, send delayed events.
@@ -537,6 +774,9 @@ public class VoiceConnectionService extends ConnectionService {
             @Override
             public void run() {
             // Run this in a Looper to avoid : java.lang.RuntimeException: Can't create handler inside thread Thread
+                if (currentConnectionService == null) {
+                    return;
+                }
                 int count = delayedEvents.size();
                 Log.d(TAG, "[VoiceConnectionService] startObserving, event count: " + count);
 
@@ -573,10 +813,19 @@ public class VoiceConnectionService extends ConnectionService {
                     intent.putExtras(extras);
                 }
 
-                boolean result = LocalBroadcastManager.getInstance(instance).sendBroadcast(intent);
+                boolean result;
+                boolean traced = CallKeepTrace.beginSection("sendCallRequestToActivity", action);
+                try {
+                    result = LocalBroadcastManager.getInstance(instance).sendBroadcast(intent);
+                } finally {
+                    CallKeepTrace.endSection(traced);
+                }
                 if (!result && retry) {
                     // Event will be sent later when a listener will be available.
                     delayedEvents.add(extras);
+                    CallKeepStats.increment(CallKeepStats.EVENTS_QUEUED);
+                } else if (!result) {
+                    CallKeepStats.increment(CallKeepStats.EVENTS_DROPPED);
                 }
             }
         });
@@ -627,6 +876,7 @@ public class VoiceConnectionService extends ConnectionService {
                 }
                 Connection conn = VoiceConnectionService.getConnection(callUUID);
                 Log.w(TAG, "[VoiceConnectionService] checkForAppReachability timeout after " + timeout + " ms, isReachable:" + instance.isReachable + ", uuid: " + callUUID);
+                CallKeepStats.increment(CallKeepStats.REACHABILITY_TIMEOUTS);
 
                 if (conn == null) {
                     Log.w(TAG, "[VoiceConnectionService] checkForAppReachability timeout, no connection to close with uuid: " + callUUID);
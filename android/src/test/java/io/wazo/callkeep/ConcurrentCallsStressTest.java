@@ -0,0 +1,482 @@
+/*
+ * Copyright (c) 2016-2019 The CallKeep Authors (see the AUTHORS file)
+ * SPDX-License-Identifier: ISC, MIT
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package io.wazo.callkeep;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.os.Build;
+import android.os.Bundle;
+import android.telecom.PhoneAccountHandle;
+import android.telecom.TelecomManager;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.JavaOnlyArray;
+import com.facebook.react.bridge.JavaOnlyMap;
+import com.facebook.react.bridge.Promise;
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.ReadableMap;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.MockedStatic;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static io.wazo.callkeep.Constants.ACTION_ANSWER_CALL;
+import static io.wazo.callkeep.Constants.ACTION_END_CALL;
+import static io.wazo.callkeep.Constants.ACTION_HOLD_CALL;
+import static io.wazo.callkeep.Constants.ACTION_UNHOLD_CALL;
+import static io.wazo.callkeep.Constants.EXTRA_CALL_UUID;
+import static io.wazo.callkeep.Constants.EXTRA_HAS_VIDEO;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.nullable;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+/*
+ * Stress and soak harness driving the module like JS does: rounds of concurrent calls reported twice with `displayIncomingCall`
+ * (deduplication and admission), answered, held and ended with `applyCommands`, `setOnHoldMany` and `endCalls`
+ * while Telecom (FakeTelecom) answers and ends them too. The connection broadcasts go through the module receiver,
+ * and the checks are made on the events emitted to JS.
+ * Reports throughput, p99 event latency, heap growth and correctness violations (lost or duplicated events, leaked calls).
+ *
+ * Run a longer soak with: ./gradlew test -Dcallkeep.stress.soakSeconds=600 -Dcallkeep.stress.calls=200
+ */
+public class ConcurrentCallsStressTest {
+    private static final int CONCURRENT_CALLS = Integer.getInteger("callkeep.stress.calls", 64);
+    private static final int MODULE_THREADS = Integer.getInteger("callkeep.stress.threads", 8);
+    private static final long SOAK_MS = Long.getLong("callkeep.stress.soakSeconds", 3) * 1000;
+    // Each call is reported by the push and by the signaling at the same time
+    private static final int COPIES = 2;
+    // Calls over the admission burst of each round
+    private static final int REJECTED_CALLS = 4;
+    private static final int CONFERENCE_SIZE = 4;
+    private static final int HOLD_TOGGLES = 3;
+
+    private static final String END_EVENT = "RNCallKeepPerformEndCallAction";
+    private static final String ANSWER_EVENT = "RNCallKeepPerformAnswerCallAction";
+    private static final String HOLD_EVENT = "RNCallKeepDidToggleHoldAction";
+    private static final String FAILED_EVENT = "RNCallKeepOnIncomingConnectionFailed";
+
+    private final Context application = FakeReactContext.createApplication();
+    private final Map<String, String> numbers = new ConcurrentHashMap<>();
+    private final AtomicInteger placedCalls = new AtomicInteger();
+    private final Map<String, Long> requestedAt = new ConcurrentHashMap<>();
+    // Latencies by power of two of nanoseconds, so a long soak uses a fixed amount of memory
+    private final AtomicLongArray latencies = new AtomicLongArray(64);
+    private final ConcurrentLinkedQueue<String> violations = new ConcurrentLinkedQueue<>();
+    private final Promise commandsPromise = mock(Promise.class);
+    private final Promise readsPromise = mock(Promise.class);
+    private long eventCount = 0;
+
+    private MockedStatic<Arguments> arguments;
+    private FakeTelecom telecom;
+    private ExecutorService moduleThreads;
+    private FakeReactContext reactContext;
+    private RNCallKeepModule module;
+    private BroadcastReceiver receiver;
+
+    // LocalBroadcastManager posts to the main looper, which doesn't run in JVM tests:
+    // the connection broadcasts are delivered to the module receiver on the Telecom thread instead
+    private final CallEventListener broadcaster = new CallEventListener.Adapter() {
+        @Override
+        public void onAnswer(String uuid, boolean withVideo) {
+            HashMap<String, String> attributeMap = new HashMap<>();
+            attributeMap.put(EXTRA_HAS_VIDEO, String.valueOf(withVideo));
+            broadcast(ACTION_ANSWER_CALL, uuid, attributeMap);
+        }
+
+        @Override
+        public void onEnd(String uuid) {
+            broadcast(ACTION_END_CALL, uuid, new HashMap<String, String>());
+        }
+
+        @Override
+        public void onHold(String uuid, boolean hold) {
+            broadcast(hold ? ACTION_HOLD_CALL : ACTION_UNHOLD_CALL, uuid, new HashMap<String, String>());
+        }
+    };
+
+    @Before
+    public void setUp() throws Exception {
+        arguments = FakeReactContext.mockArguments();
+        setSdkInt(Build.VERSION_CODES.O);
+        telecom = new FakeTelecom(FakeReactContext.mockingThreadFactory());
+        moduleThreads = Executors.newFixedThreadPool(MODULE_THREADS, FakeReactContext.mockingThreadFactory());
+
+        // Telecom creates the connection of each incoming call it's given
+        TelecomManager telecomManager = mock(TelecomManager.class);
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Exception {
+                String uuid = invocation.<Bundle>getArgument(1).getString(EXTRA_CALL_UUID);
+                placedCalls.incrementAndGet();
+                telecom.createIncomingConnection(uuid, numbers.get(uuid));
+                return null;
+            }
+        }).when(telecomManager).addNewIncomingCall(nullable(PhoneAccountHandle.class), any(Bundle.class));
+        setStatic(RNCallKeepModule.class, "telecomManager", telecomManager);
+
+        reactContext = new FakeReactContext(application);
+        module = RNCallKeepModule.getInstance(reactContext, true);
+        module.setSettings(getSettings());
+        receiver = (BroadcastReceiver) getStatic(RNCallKeepModule.class, "voiceBroadcastReceiver");
+        VoiceConnectionService.addCallEventListener(broadcaster, null);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        VoiceConnectionService.removeCallEventListener(broadcaster);
+        module.invalidate();
+        moduleThreads.shutdownNow();
+        telecom.shutdown();
+
+        RNCallKeepModule.instance = null;
+        setStatic(RNCallKeepModule.class, "telecomManager", null);
+        setStatic(RNCallKeepModule.class, "_settings", null);
+        setStatic(RNCallKeepModule.class, "delayedEvents", null);
+        VoiceConnectionService.currentConnections = Collections.emptyMap();
+        IncomingCallDeduplicator.configure(null);
+        IncomingCallDeduplicator.reset();
+        IncomingCallAdmission.reset();
+        setSdkInt(0);
+        arguments.close();
+    }
+
+    @Test
+    public void survivesConcurrentCallChurn() throws Exception {
+        listen();
+
+        long heapBefore = usedHeap();
+        long start = System.nanoTime();
+        int rounds = 0;
+        do {
+            runRound(rounds++);
+        } while (System.nanoTime() - start < SOAK_MS * 1000000L);
+        double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+        long heapGrowth = usedHeap() - heapBefore;
+
+        if (!VoiceConnectionService.currentConnections.isEmpty()) {
+            violations.add("leaked connections: " + VoiceConnectionService.currentConnections.keySet());
+        }
+        if (AudioSessionManager.getActiveCallCount() != 0) {
+            violations.add("leaked audio session calls: " + AudioSessionManager.getActiveCallCount());
+        }
+
+        long calls = (long) rounds * CONCURRENT_CALLS;
+        System.out.println(String.format(
+            "[ConcurrentCallsStressTest] %d calls in %d rounds of %d, %.0f calls/s, %d events (%.0f/s), p99 event latency: < %.3f ms, heap growth: %d KB, violations: %d",
+            calls, rounds, CONCURRENT_CALLS, calls / elapsedSeconds, eventCount, eventCount / elapsedSeconds,
+            getLatencyPercentile(0.99) / 1e6, heapGrowth / 1024, violations.size()));
+        assertTrue("violations: " + violations, violations.isEmpty());
+    }
+
+    // Events received before JS listens are given to it with `didLoadWithEvents`
+    @Test
+    public void queuesEventsUntilJsListens() throws Exception {
+        final String uuid = "queued-call";
+        numbers.put(uuid, "1000");
+        moduleThreads.submit(new Runnable() {
+            @Override
+            public void run() {
+                module.displayIncomingCall(uuid, "1000", "Caller 1000");
+            }
+        }).get();
+        final VoiceConnection connection = VoiceConnectionService.currentConnections.get(uuid);
+        telecom.post(new Runnable() {
+            @Override
+            public void run() {
+                connection.onDisconnect();
+            }
+        }).get();
+        flushBroadcasts();
+        assertEquals(0, reactContext.takeEmittedEvents().size());
+
+        listen();
+
+        List<FakeReactContext.EmittedEvent> emitted = reactContext.takeEmittedEvents();
+        assertEquals(1, emitted.size());
+        assertEquals("RNCallKeepDidLoadWithEvents", emitted.get(0).name);
+        ReadableArray events = (ReadableArray) emitted.get(0).data;
+        assertEquals(1, events.size());
+        assertEquals(END_EVENT, events.getMap(0).getString("name"));
+        assertEquals(uuid, events.getMap(0).getMap("data").getString("callUUID"));
+    }
+
+    private void runRound(int round) throws Exception {
+        // A new admission bucket of CONCURRENT_CALLS tokens, and no call remembered from the previous round
+        IncomingCallDeduplicator.reset();
+        IncomingCallAdmission.reset();
+        module.setSettings(getSettings());
+        placedCalls.set(0);
+
+        List<Future<?>> pending = new ArrayList<>();
+        for (int i = 0; i < CONCURRENT_CALLS + REJECTED_CALLS; i++) {
+            final String uuid = "round-" + round + "-call-" + i;
+            final String number = String.valueOf(1000 + i);
+            numbers.put(uuid, number);
+            for (int copy = 0; copy < COPIES; copy++) {
+                pending.add(moduleThreads.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        module.displayIncomingCall(uuid, number, "Caller " + number);
+                    }
+                }));
+            }
+        }
+        waitFor(pending);
+
+        final Set<String> placed = new HashSet<>(VoiceConnectionService.currentConnections.keySet());
+        if (placedCalls.get() != CONCURRENT_CALLS || placed.size() != CONCURRENT_CALLS) {
+            violations.add("round " + round + ": " + placedCalls.get() + " calls given to Telecom and " + placed.size() + " connections for " + CONCURRENT_CALLS + " admitted calls");
+        }
+
+        List<VoiceConnection> connections = new ArrayList<>(VoiceConnectionService.currentConnections.values());
+        final VoiceConference conference = telecom.createConference(connections.subList(0, Math.min(CONFERENCE_SIZE, connections.size())));
+
+        int commandCount = 0;
+        for (final VoiceConnection connection : connections) {
+            final String uuid = connection.getCallUuid();
+
+            // Answered from the native UI and from JS at the same time
+            pending.add(telecom.post(new Runnable() {
+                @Override
+                public void run() {
+                    connection.onAnswer();
+                }
+            }));
+            pending.add(moduleThreads.submit(new Runnable() {
+                @Override
+                public void run() {
+                    module.applyCommands(JavaOnlyArray.of(JavaOnlyMap.of("uuid", uuid, "action", "answer")), commandsPromise);
+                }
+            }));
+
+            pending.add(moduleThreads.submit(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < HOLD_TOGGLES; i++) {
+                        module.setOnHoldMany(JavaOnlyArray.of(uuid), true, commandsPromise);
+                        module.setOnHoldMany(JavaOnlyArray.of(uuid), false, commandsPromise);
+                        conference.setHeld(i % 2 == 0);
+                        conference.getMemberUuids();
+                        module.getActiveCalls(readsPromise);
+                    }
+                }
+            }));
+
+            // Ended by the remote side and by JS at the same time
+            requestedAt.put(uuid, System.nanoTime());
+            pending.add(telecom.post(new Runnable() {
+                @Override
+                public void run() {
+                    if (conference.hasMember(uuid)) {
+                        conference.onSeparate(connection);
+                    }
+                    connection.onDisconnect();
+                }
+            }));
+            pending.add(moduleThreads.submit(new Runnable() {
+                @Override
+                public void run() {
+                    module.endCalls(JavaOnlyArray.of(uuid), commandsPromise);
+                }
+            }));
+            commandCount += 2 + HOLD_TOGGLES * 2;
+        }
+        waitFor(pending);
+        flushBroadcasts();
+
+        if (!conference.getMemberUuids().isEmpty()) {
+            violations.add("conference members left after round " + round + ": " + conference.getMemberUuids());
+        }
+        // Each command gets its results, a batch is never rejected
+        verify(commandsPromise, times(commandCount)).resolve(any());
+        verifyNoMoreInteractions(commandsPromise);
+        clearInvocations(commandsPromise, readsPromise);
+
+        checkEvents(round, placed, reactContext.takeEmittedEvents());
+        numbers.clear();
+        requestedAt.clear();
+    }
+
+    // An answer can lose the race against the end, an end can't be lost. Only the calls over the burst fail.
+    private void checkEvents(int round, Set<String> placed, List<FakeReactContext.EmittedEvent> emitted) {
+        Map<String, Integer> answers = new HashMap<>();
+        Map<String, Integer> ends = new HashMap<>();
+        Set<String> failed = new HashSet<>();
+        for (FakeReactContext.EmittedEvent event : emitted) {
+            eventCount++;
+            String uuid = ((ReadableMap) event.data).getString("callUUID");
+            if (FAILED_EVENT.equals(event.name)) {
+                if (placed.contains(uuid) || !"admissionRejected".equals(((ReadableMap) event.data).getString("reason"))) {
+                    violations.add("round " + round + ": unexpected " + event.name + " for " + uuid);
+                }
+                failed.add(uuid);
+                continue;
+            }
+            if (!placed.contains(uuid)) {
+                violations.add("round " + round + ": " + event.name + " for an unknown call: " + uuid);
+                continue;
+            }
+            if (END_EVENT.equals(event.name)) {
+                increment(ends, uuid);
+                Long requested = requestedAt.get(uuid);
+                if (requested != null) {
+                    latencies.incrementAndGet(64 - Long.numberOfLeadingZeros(Math.max(event.emittedAt - requested, 1)));
+                }
+            } else if (ANSWER_EVENT.equals(event.name)) {
+                increment(answers, uuid);
+            }
+        }
+
+        for (String uuid : placed) {
+            Integer answerCount = answers.get(uuid);
+            if (answerCount != null && answerCount > 1) {
+                violations.add("round " + round + ": duplicated answer: " + uuid + " x" + answerCount);
+            }
+            Integer endCount = ends.get(uuid);
+            if (endCount == null || endCount != 1) {
+                violations.add("round " + round + ": " + (endCount == null ? "lost end: " : "duplicated end: ") + uuid + " x" + endCount);
+            }
+        }
+        if (failed.size() != REJECTED_CALLS) {
+            violations.add("round " + round + ": " + failed.size() + " calls rejected by the admission instead of " + REJECTED_CALLS);
+        }
+    }
+
+    // What JS does once its listeners are added
+    private void listen() {
+        module.registerEvents();
+        for (String event : new String[] { END_EVENT, ANSWER_EVENT, HOLD_EVENT, FAILED_EVENT }) {
+            module.addListener(event);
+        }
+    }
+
+    private void broadcast(final String action, String uuid, HashMap<String, String> attributeMap) {
+        attributeMap.put(EXTRA_CALL_UUID, uuid);
+        final Intent intent = mock(Intent.class);
+        when(intent.getAction()).thenReturn(action);
+        when(intent.getSerializableExtra("attributeMap")).thenReturn(attributeMap);
+        telecom.post(new Runnable() {
+            @Override
+            public void run() {
+                receiver.onReceive(application, intent);
+            }
+        });
+    }
+
+    // Broadcasts are delivered in order on the Telecom thread
+    private void flushBroadcasts() throws Exception {
+        telecom.post(new Runnable() {
+            @Override
+            public void run() {
+            }
+        }).get();
+    }
+
+    private ReadableMap getSettings() {
+        JavaOnlyMap admission = JavaOnlyMap.of("burst", (double) CONCURRENT_CALLS, "ratePerSecond", 0.0, "overflow", IncomingCallAdmission.OVERFLOW_REJECT_BUSY);
+        return JavaOnlyMap.of("selfManaged", true, "incomingCallDeduplication", new JavaOnlyMap(), "incomingCallAdmission", admission);
+    }
+
+    private static void waitFor(List<Future<?>> pending) throws Exception {
+        for (Future<?> future : pending) {
+            future.get();
+        }
+        pending.clear();
+    }
+
+    private static void increment(Map<String, Integer> counts, String uuid) {
+        Integer count = counts.get(uuid);
+        counts.put(uuid, count == null ? 1 : count + 1);
+    }
+
+    // Upper bound of the bucket holding the percentile
+    private long getLatencyPercentile(double percentile) {
+        long total = 0;
+        for (int i = 0; i < latencies.length(); i++) {
+            total += latencies.get(i);
+        }
+        long seen = 0;
+        for (int i = 0; i < latencies.length(); i++) {
+            seen += latencies.get(i);
+            if (seen > 0 && seen >= total * percentile) {
+                return 1L << i;
+            }
+        }
+        return 0;
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    // SDK_INT is 0 in JVM tests: the module needs a ConnectionService (API 23) and self managed calls (API 26)
+    private static void setSdkInt(int sdkInt) throws Exception {
+        Field field = Build.VERSION.class.getField("SDK_INT");
+        Field modifiers = Field.class.getDeclaredField("modifiers");
+        modifiers.setAccessible(true);
+        modifiers.setInt(field, field.getModifiers() & ~Modifier.FINAL);
+        field.setAccessible(true);
+        field.setInt(null, sdkInt);
+    }
+
+    private static Object getStatic(Class<?> type, String name) throws Exception {
+        Field field = type.getDeclaredField(name);
+        field.setAccessible(true);
+        return field.get(null);
+    }
+
+    private static void setStatic(Class<?> type, String name, Object value) throws Exception {
+        Field field = type.getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(null, value);
+    }
+}
@@ -0,0 +1,206 @@
+/*
+ * Copyright (c) 2016-2019 The CallKeep Authors (see the AUTHORS file)
+ * SPDX-License-Identifier: ISC, MIT
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package io.wazo.callkeep;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.content.pm.PackageManager;
+import android.os.Bundle;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.JavaOnlyArray;
+import com.facebook.react.bridge.JavaOnlyMap;
+import com.facebook.react.bridge.JavaScriptModule;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.modules.core.DeviceEventManagerModule.RCTDeviceEventEmitter;
+
+import org.mockito.MockedConstruction;
+import org.mockito.MockedStatic;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadFactory;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.nullable;
+import static org.mockito.Mockito.RETURNS_SELF;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockConstruction;
+import static org.mockito.Mockito.mockStatic;
+import static org.mockito.Mockito.when;
+
+/*
+ * React context of a JVM test, on top of an application context that outlives it like in an app reload.
+ * The events emitted to JS are recorded, and the module methods are expected to be called from the module threads of the test.
+ * Native maps and arrays need the React Native libraries: `mockArguments` makes `Arguments` return Java only ones.
+ */
+class FakeReactContext extends ReactApplicationContext {
+    private final Context application;
+    private final List<EmittedEvent> emittedEvents = Collections.synchronizedList(new ArrayList<EmittedEvent>());
+    private final RCTDeviceEventEmitter emitter = new RCTDeviceEventEmitter() {
+        @Override
+        public void emit(String eventName, Object data) {
+            emittedEvents.add(new EmittedEvent(eventName, data));
+        }
+    };
+
+    static class EmittedEvent {
+        final String name;
+        final Object data;
+        final long emittedAt = System.nanoTime();
+
+        EmittedEvent(String name, Object data) {
+            this.name = name;
+            this.data = data;
+        }
+    }
+
+    FakeReactContext(Context application) {
+        super(application);
+        this.application = application;
+    }
+
+    @Override
+    public Context getApplicationContext() {
+        return application;
+    }
+
+    @Override
+    public boolean hasActiveCatalystInstance() {
+        return true;
+    }
+
+    @Override
+    public <T extends JavaScriptModule> T getJSModule(Class<T> jsInterface) {
+        return jsInterface.cast(emitter);
+    }
+
+    @Override
+    public boolean isOnNativeModulesQueueThread() {
+        return true;
+    }
+
+    List<EmittedEvent> takeEmittedEvents() {
+        synchronized (emittedEvents) {
+            List<EmittedEvent> events = new ArrayList<>(emittedEvents);
+            emittedEvents.clear();
+            return events;
+        }
+    }
+
+    // Application context with empty shared preferences
+    static Context createApplication() {
+        SharedPreferences preferences = mock(SharedPreferences.class);
+        when(preferences.getAll()).thenReturn(new HashMap<String, Object>());
+        when(preferences.getString(anyString(), any(String.class))).thenAnswer(new Answer<String>() {
+            @Override
+            public String answer(InvocationOnMock invocation) {
+                return invocation.getArgument(1);
+            }
+        });
+        when(preferences.edit()).thenReturn(mock(SharedPreferences.Editor.class, RETURNS_SELF));
+
+        final Context application = mock(Context.class);
+        when(application.getApplicationContext()).thenReturn(application);
+        when(application.getSharedPreferences(anyString(), anyInt())).thenReturn(preferences);
+        // The phone state is not listened to
+        when(application.checkPermission(anyString(), anyInt(), anyInt())).thenReturn(PackageManager.PERMISSION_DENIED);
+        return application;
+    }
+
+    // Threads with `mockArguments` and `mockBundles` for their whole life, to run the module or Telecom callbacks
+    static ThreadFactory mockingThreadFactory() {
+        return new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable runnable) {
+                return new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        MockedStatic<Arguments> arguments = mockArguments();
+                        MockedConstruction<Bundle> bundles = mockBundles();
+                        try {
+                            runnable.run();
+                        } finally {
+                            bundles.close();
+                            arguments.close();
+                        }
+                    }
+                });
+            }
+        };
+    }
+
+    // Bundles of android.jar are stubs: back the strings with a map, eg: for the extras given to `TelecomManager`
+    static MockedConstruction<Bundle> mockBundles() {
+        return mockConstruction(Bundle.class, new MockedConstruction.MockInitializer<Bundle>() {
+            @Override
+            public void prepare(Bundle bundle, MockedConstruction.Context context) {
+                final Map<String, String> values = Collections.synchronizedMap(new HashMap<String, String>());
+                doAnswer(new Answer<Void>() {
+                    @Override
+                    public Void answer(InvocationOnMock invocation) {
+                        values.put(invocation.<String>getArgument(0), invocation.<String>getArgument(1));
+                        return null;
+                    }
+                }).when(bundle).putString(anyString(), nullable(String.class));
+                when(bundle.getString(anyString())).thenAnswer(new Answer<String>() {
+                    @Override
+                    public String answer(InvocationOnMock invocation) {
+                        return values.get(invocation.<String>getArgument(0));
+                    }
+                });
+            }
+        });
+    }
+
+    // Static mocks are per thread: call it on each thread creating maps, and close it at the end
+    static MockedStatic<Arguments> mockArguments() {
+        MockedStatic<Arguments> arguments = mockStatic(Arguments.class);
+        arguments.when(new MockedStatic.Verification() {
+            @Override
+            public void apply() {
+                Arguments.createMap();
+            }
+        }).thenAnswer(new Answer<JavaOnlyMap>() {
+            @Override
+            public JavaOnlyMap answer(InvocationOnMock invocation) {
+                return new JavaOnlyMap();
+            }
+        });
+        arguments.when(new MockedStatic.Verification() {
+            @Override
+            public void apply() {
+                Arguments.createArray();
+            }
+        }).thenAnswer(new Answer<JavaOnlyArray>() {
+            @Override
+            public JavaOnlyArray answer(InvocationOnMock invocation) {
+                return new JavaOnlyArray();
+            }
+        });
+        return arguments;
+    }
+}
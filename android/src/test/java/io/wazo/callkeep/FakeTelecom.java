@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2016-2019 The CallKeep Authors (see the AUTHORS file)
+ * SPDX-License-Identifier: ISC, MIT
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package io.wazo.callkeep;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import static io.wazo.callkeep.Constants.EXTRA_CALLER_NAME;
+import static io.wazo.callkeep.Constants.EXTRA_CALL_NUMBER;
+import static io.wazo.callkeep.Constants.EXTRA_CALL_UUID;
+import static org.mockito.Mockito.mock;
+
+/*
+ * Stand-in for Telecom in JVM tests: connections are created and their callbacks run on a single thread,
+ * like the main looper of a real ConnectionService. Android classes come from the mockable android.jar.
+ */
+class FakeTelecom {
+    private final ExecutorService mainThread;
+    private final VoiceConnectionService service = mock(VoiceConnectionService.class);
+
+    FakeTelecom() {
+        this(Executors.defaultThreadFactory());
+    }
+
+    FakeTelecom(ThreadFactory threadFactory) {
+        mainThread = Executors.newSingleThreadExecutor(threadFactory);
+    }
+
+    // What `VoiceConnectionService.createConnection` does once Telecom accepted an incoming call
+    VoiceConnection createIncomingConnection(final String uuid, final String number) throws Exception {
+        return mainThread.submit(new Callable<VoiceConnection>() {
+            @Override
+            public VoiceConnection call() {
+                HashMap<String, String> handle = new HashMap<>();
+                handle.put(EXTRA_CALL_UUID, uuid);
+                handle.put(EXTRA_CALL_NUMBER, number);
+                handle.put(EXTRA_CALLER_NAME, "Caller " + number);
+
+                VoiceConnection connection = new VoiceConnection(service, handle);
+                VoiceConnectionService.putConnection(uuid, connection);
+                CallStateRegistry.onCreated(uuid, false);
+                CallPayloadStore.onConnectionCreated(uuid);
+                return connection;
+            }
+        }).get();
+    }
+
+    // Telecom adds the connections to the conference one by one with `onConnectionAdded`
+    VoiceConference createConference(final List<VoiceConnection> connections) throws Exception {
+        return mainThread.submit(new Callable<VoiceConference>() {
+            @Override
+            public VoiceConference call() {
+                VoiceConference conference = new VoiceConference(service, null);
+                for (VoiceConnection connection : connections) {
+                    conference.onConnectionAdded(connection);
+                }
+                return conference;
+            }
+        }).get();
+    }
+
+    Future<?> post(Runnable callback) {
+        return mainThread.submit(callback);
+    }
+
+    void shutdown() {
+        mainThread.shutdownNow();
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2016-2019 The CallKeep Authors (see the AUTHORS file)
+ * SPDX-License-Identifier: ISC, MIT
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package io.wazo.callkeep;
+
+import android.os.SystemClock;
+
+import com.facebook.react.bridge.JavaOnlyMap;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.MockedStatic;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mockStatic;
+
+/*
+ * Deferred path of the admission: calls queued while the bucket is empty are admitted by `drain` once tokens are back.
+ */
+public class IncomingCallAdmissionTest {
+    private final List<String> admitted = Collections.synchronizedList(new ArrayList<String>());
+    private final List<String> rejected = Collections.synchronizedList(new ArrayList<String>());
+    private final ExecutorService otherThread = Executors.newSingleThreadExecutor();
+    private MockedStatic<SystemClock> clock;
+    private long now = 1000;
+
+    @Before
+    public void setUp() {
+        clock = mockStatic(SystemClock.class);
+        clock.when(new MockedStatic.Verification() {
+            @Override
+            public void apply() {
+                SystemClock.elapsedRealtime();
+            }
+        }).thenAnswer(new Answer<Long>() {
+            @Override
+            public Long answer(InvocationOnMock invocation) {
+                return now;
+            }
+        });
+        IncomingCallAdmission.reset();
+
+        JavaOnlyMap admission = JavaOnlyMap.of("burst", 1.0, "ratePerSecond", 1.0, "overflow", IncomingCallAdmission.OVERFLOW_QUEUE);
+        IncomingCallAdmission.configure(JavaOnlyMap.of("incomingCallAdmission", admission));
+    }
+
+    @After
+    public void tearDown() {
+        IncomingCallAdmission.reset();
+        clock.close();
+        otherThread.shutdownNow();
+    }
+
+    @Test
+    public void admitsQueuedCallsWhenTokensAreBack() {
+        submit("call-1");
+        submit("call-2");
+        submit("call-3");
+        assertEquals(Collections.singletonList("call-1"), admitted);
+        assertEquals(2, IncomingCallAdmission.getQueueDepth());
+
+        now += 1000;
+        IncomingCallAdmission.drain.run();
+        assertEquals(Arrays.asList("call-1", "call-2"), admitted);
+
+        now += 1000;
+        IncomingCallAdmission.drain.run();
+        assertEquals(Arrays.asList("call-1", "call-2", "call-3"), admitted);
+        assertEquals(0, IncomingCallAdmission.getQueueDepth());
+        assertEquals(Collections.emptyList(), rejected);
+    }
+
+    @Test
+    public void rejectsQueuedCallsAfterTheMaximumWait() {
+        submit("call-1");
+        submit("call-2");
+
+        now += 20000;
+        IncomingCallAdmission.drain.run();
+
+        assertEquals(Collections.singletonList("call-1"), admitted);
+        assertEquals(Collections.singletonList("call-2"), rejected);
+    }
+
+    @Test
+    public void runsQueuedCallbacksWithoutTheLock() throws Exception {
+        IncomingCallAdmission.submit("call-1", new Runnable() {
+            @Override
+            public void run() {
+            }
+        }, new Runnable() {
+            @Override
+            public void run() {
+            }
+        });
+        IncomingCallAdmission.submit("call-2", new Runnable() {
+            @Override
+            public void run() {
+                // Blocks if the admission lock is still held, eg: by a binder call to Telecom
+                try {
+                    admitted.add("call-2 saw depth " + otherThread.submit(new Callable<Integer>() {
+                        @Override
+                        public Integer call() {
+                            return IncomingCallAdmission.getQueueDepth();
+                        }
+                    }).get(5, TimeUnit.SECONDS));
+                } catch (Exception e) {
+                    rejected.add("call-2: " + e);
+                }
+            }
+        }, new Runnable() {
+            @Override
+            public void run() {
+            }
+        });
+
+        now += 1000;
+        IncomingCallAdmission.drain.run();
+
+        assertEquals(Collections.singletonList("call-2 saw depth 0"), admitted);
+        assertEquals(Collections.emptyList(), rejected);
+    }
+
+    private void submit(final String uuid) {
+        IncomingCallAdmission.submit(uuid, new Runnable() {
+            @Override
+            public void run() {
+                admitted.add(uuid);
+            }
+        }, new Runnable() {
+            @Override
+            public void run() {
+                rejected.add(uuid);
+            }
+        });
+    }
+}
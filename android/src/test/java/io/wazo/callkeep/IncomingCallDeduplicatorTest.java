@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2016-2019 The CallKeep Authors (see the AUTHORS file)
+ * SPDX-License-Identifier: ISC, MIT
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package io.wazo.callkeep;
+
+import com.facebook.react.bridge.JavaOnlyMap;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/*
+ * Incoming calls go through the deduplicator then the admission, like `RNCallKeepModule.displayIncomingCall`.
+ */
+public class IncomingCallDeduplicatorTest {
+    private final List<String> placed = Collections.synchronizedList(new ArrayList<String>());
+    private final List<String> rejected = Collections.synchronizedList(new ArrayList<String>());
+
+    @Before
+    public void setUp() {
+        IncomingCallDeduplicator.reset();
+        IncomingCallAdmission.reset();
+        IncomingCallDeduplicator.configure(JavaOnlyMap.of("incomingCallDeduplication", new JavaOnlyMap()));
+    }
+
+    @After
+    public void tearDown() {
+        IncomingCallDeduplicator.configure(null);
+        IncomingCallDeduplicator.reset();
+        IncomingCallAdmission.reset();
+    }
+
+    @Test
+    public void isDisabledByDefault() {
+        IncomingCallDeduplicator.configure(null);
+
+        display("call-1", "1000");
+        display("call-1", "1000");
+
+        assertEquals(Arrays.asList("call-1", "call-1"), placed);
+    }
+
+    @Test
+    public void dropsCopiesWaitingInTheAdmissionQueue() {
+        configureAdmission(IncomingCallAdmission.OVERFLOW_QUEUE);
+
+        // Takes the only token, the next calls are queued
+        display("call-1", "1000");
+        display("call-2", "2000");
+        display("call-2", "2000");
+
+        assertEquals(Collections.singletonList("call-1"), placed);
+        assertEquals(Collections.emptyList(), rejected);
+        assertEquals(1, IncomingCallAdmission.getQueueDepth());
+    }
+
+    @Test
+    public void forgetsCallsRejectedByTheAdmission() {
+        configureAdmission(IncomingCallAdmission.OVERFLOW_REJECT_BUSY);
+
+        display("call-1", "1000");
+        display("call-2", "2000");
+        // Rejected, not a duplicate: it can be reported again
+        display("call-2", "2000");
+
+        assertEquals(Collections.singletonList("call-1"), placed);
+        assertEquals(Arrays.asList("call-2", "call-2"), rejected);
+    }
+
+    private void configureAdmission(String overflow) {
+        JavaOnlyMap admission = JavaOnlyMap.of("burst", 1.0, "ratePerSecond", 0.0, "overflow", overflow);
+        IncomingCallAdmission.configure(JavaOnlyMap.of("incomingCallAdmission", admission));
+    }
+
+    private void display(final String uuid, final String number) {
+        if (IncomingCallDeduplicator.isDuplicate(uuid, number, null)) {
+            return;
+        }
+        IncomingCallAdmission.submit(uuid, new Runnable() {
+            @Override
+            public void run() {
+                placed.add(uuid);
+            }
+        }, new Runnable() {
+            @Override
+            public void run() {
+                IncomingCallDeduplicator.onDropped(uuid, number, null);
+                rejected.add(uuid);
+            }
+        });
+    }
+}
@@ -0,0 +1,230 @@
+/*
+ * Copyright (c) 2016-2019 The CallKeep Authors (see the AUTHORS file)
+ * SPDX-License-Identifier: ISC, MIT
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package io.wazo.callkeep;
+
+import android.content.Context;
+
+import androidx.localbroadcastmanager.content.LocalBroadcastManager;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.ReactApplicationContext;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.MockedStatic;
+
+import java.lang.ref.Reference;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+
+/*
+ * A destroyed React context must not be reachable from the static state of the library,
+ * otherwise each reload of the app keeps the previous JS runtime alive.
+ * Goes through the same entry points as React Native: `getInstance` for each context, then `invalidate`
+ * or `onCatalystInstanceDestroy` when it's torn down.
+ */
+public class RNCallKeepModuleLeakTest {
+    private final Context application = FakeReactContext.createApplication();
+    // Held by the React Native module registry until they are invalidated
+    private final Map<WeakReference<ReactApplicationContext>, RNCallKeepModule> registeredModules = new HashMap<>();
+    private MockedStatic<Arguments> arguments;
+    private FakeTelecom telecom;
+
+    @Before
+    public void setUp() {
+        arguments = FakeReactContext.mockArguments();
+        telecom = new FakeTelecom();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        RNCallKeepModule.instance = null;
+        registeredModules.clear();
+        setStatic(RNCallKeepModule.class, "delayedEvents", null);
+        VoiceConnectionService.currentConnections = Collections.emptyMap();
+        telecom.shutdown();
+        arguments.close();
+    }
+
+    @Test
+    public void releasesTheReloadedReactContext() throws Exception {
+        WeakReference<ReactApplicationContext> first = createModule();
+        WeakReference<ReactApplicationContext> second = createModule();
+        // Like React Native, the previous module is invalidated once the new one is created
+        invalidate(first);
+
+        assertNotSame(first.get(), RNCallKeepModule.instance.getContext());
+        assertUnreachableFromStatics(first);
+        assertCollected(first);
+        assertNotNull(second.get());
+    }
+
+    @Test
+    public void releasesTheDestroyedReactContext() throws Exception {
+        WeakReference<ReactApplicationContext> context = createModule();
+        registeredModules.remove(context).onCatalystInstanceDestroy();
+
+        assertNull(RNCallKeepModule.instance);
+        assertUnreachableFromStatics(context);
+        assertCollected(context);
+    }
+
+    @Test
+    public void releasesEveryReloadedReactContext() throws Exception {
+        WeakReference<ReactApplicationContext> first = createModule();
+        WeakReference<ReactApplicationContext> second = createModule();
+        invalidate(first);
+        WeakReference<ReactApplicationContext> third = createModule();
+        invalidate(second);
+        invalidate(third);
+
+        assertNull(RNCallKeepModule.instance);
+        assertUnreachableFromStatics(first);
+        assertUnreachableFromStatics(second);
+        assertUnreachableFromStatics(third);
+        assertCollected(first);
+        assertCollected(second);
+        assertCollected(third);
+    }
+
+    // A module with a call and an event queued for JS while it's alive, so the statics are not empty
+    private WeakReference<ReactApplicationContext> createModule() throws Exception {
+        ReactApplicationContext context = new FakeReactContext(application);
+        RNCallKeepModule module = RNCallKeepModule.getInstance(context, true);
+        telecom.createIncomingConnection(UUID.randomUUID().toString(), "0123456789");
+        module.sendEventToJS("RNCallKeepCheckReachability", Arguments.createMap());
+
+        WeakReference<ReactApplicationContext> reference = new WeakReference<>(context);
+        registeredModules.put(reference, module);
+        return reference;
+    }
+
+    private void invalidate(WeakReference<ReactApplicationContext> context) {
+        registeredModules.remove(context).invalidate();
+    }
+
+    private void assertUnreachableFromStatics(WeakReference<ReactApplicationContext> context) throws Exception {
+        Map<String, Object> roots = new LinkedHashMap<>();
+        roots.put("RNCallKeepModule.instance", RNCallKeepModule.instance);
+        roots.put("RNCallKeepModule.voiceBroadcastReceiver", getStatic(RNCallKeepModule.class, "voiceBroadcastReceiver"));
+        roots.put("RNCallKeepModule.delayedEvents", getStatic(RNCallKeepModule.class, "delayedEvents"));
+        roots.put("VoiceConnectionService.currentConnections", VoiceConnectionService.currentConnections);
+        roots.put("VoiceConnectionService.currentConferences", VoiceConnectionService.currentConferences);
+        roots.put("LocalBroadcastManager", LocalBroadcastManager.getInstance(application));
+
+        for (Map.Entry<String, Object> root : roots.entrySet()) {
+            assertFalse("the React context is reachable from " + root.getKey(), isReachable(root.getValue(), context.get()));
+        }
+    }
+
+    private static void assertCollected(WeakReference<?> reference) throws InterruptedException {
+        for (int i = 0; i < 20 && reference.get() != null; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        assertNull("the React context is still referenced", reference.get());
+    }
+
+    // Walks the strong references from `root`: fields of the library and React Native objects, content of JDK collections
+    private static boolean isReachable(Object root, Object target) {
+        Set<Object> visited = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+        Deque<Object> pending = new ArrayDeque<>();
+        if (root != null) {
+            pending.push(root);
+        }
+        while (!pending.isEmpty()) {
+            Object current = pending.pop();
+            if (current == target) {
+                return true;
+            }
+            if (!visited.add(current) || current instanceof Reference || current instanceof Class) {
+                continue;
+            }
+
+            if (current instanceof Map) {
+                for (Map.Entry<?, ?> entry : ((Map<?, ?>) current).entrySet()) {
+                    push(pending, entry.getKey());
+                    push(pending, entry.getValue());
+                }
+            } else if (current instanceof Iterable) {
+                for (Object item : (Iterable<?>) current) {
+                    push(pending, item);
+                }
+            } else if (current.getClass().isArray()) {
+                if (!current.getClass().getComponentType().isPrimitive()) {
+                    for (int i = 0; i < Array.getLength(current); i++) {
+                        push(pending, Array.get(current, i));
+                    }
+                }
+            }
+            if (current.getClass().getName().startsWith("java")) {
+                continue;
+            }
+
+            for (Class<?> type = current.getClass(); type != null && type != Object.class; type = type.getSuperclass()) {
+                for (Field field : type.getDeclaredFields()) {
+                    if (Modifier.isStatic(field.getModifiers()) || field.getType().isPrimitive()) {
+                        continue;
+                    }
+                    try {
+                        field.setAccessible(true);
+                        push(pending, field.get(current));
+                    } catch (RuntimeException | IllegalAccessException e) {
+                        // Fields of the platform classes can't always be read
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private static void push(Deque<Object> pending, Object value) {
+        if (value != null) {
+            pending.push(value);
+        }
+    }
+
+    private static Object getStatic(Class<?> type, String name) throws Exception {
+        Field field = type.getDeclaredField(name);
+        field.setAccessible(true);
+        return field.get(null);
+    }
+
+    private static void setStatic(Class<?> type, String name, Object value) throws Exception {
+        Field field = type.getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(null, value);
+    }
+}
@@ -10,6 +10,8 @@ declare module 'react-native-callkeep' {
     didToggleHoldCallAction: 'RNCallKeepDidToggleHoldAction';
     didChangeAudioRoute: 'RNCallKeepDidChangeAudioRoute';
     didPerformDTMFAction: 'RNCallKeepDidPerformDTMFAction';
+    didProgressDTMFSequence: 'RNCallKeepDidProgressDTMFSequence';
+    didCompleteDTMFSequence: 'RNCallKeepDidCompleteDTMFSequence';
     showIncomingCallUi: 'RNCallKeepShowIncomingCallUi';
     silenceIncomingCall: 'RNCallKeepOnSilenceIncomingCall';
     createIncomingConnectionFailed: 'RNCallKeepOnIncomingConnectionFailed';
@@ -17,6 +19,9 @@ declare module 'react-native-callkeep' {
     didResetProvider: 'RNCallKeepProviderReset';
     didLoadWithEvents: 'RNCallKeepDidLoadWithEvents';
     onHasActiveCall : 'onHasActiveCall';
+    didChangeConference: 'RNCallKeepDidChangeConference';
+    didFindOrphanedCall: 'RNCallKeepDidFindOrphanedCall';
+    didReceiveWakeCalls: 'RNCallKeepDidReceiveWakeCalls';
   }
 
   export type InitialEvents = Array<{
@@ -48,14 +53,98 @@ declare module 'react-native-callkeep' {
       handle?: string,
       callUUID?: string,
     };
-    didPerformDTMFAction: { digits: string, callUUID: string };
+    didPerformDTMFAction: { digits: string, callUUID: string, toneDuration?: number, pauseDuration?: number };
+    didProgressDTMFSequence: {
+      digits: string,
+      callUUID: string,
+      sent: number,
+      total: number,
+      toneDuration: number,
+      pauseDuration: number,
+    };
+    didCompleteDTMFSequence: {
+      digits: string,
+      callUUID: string,
+      sent: number,
+      total: number,
+      toneDuration: number,
+      pauseDuration: number,
+      cancelled: boolean,
+    };
     showIncomingCallUi: { handle: string, callUUID: string, name: string };
     silenceIncomingCall: { handle: string, callUUID: string, name: string };
-    createIncomingConnectionFailed: { handle: string, callUUID: string, name: string };
+    createIncomingConnectionFailed: { handle: string, callUUID: string, name: string, reason?: string };
     checkReachability: undefined;
     didResetProvider: undefined;
     didLoadWithEvents: InitialEvents;
     onHasActiveCall : undefined;
+    didChangeConference: {
+      conferenceId: string,
+      event: 'created' | 'merged' | 'separated' | 'removed' | 'held' | 'unheld' | 'muted' | 'unmuted' | 'ended',
+      callUUID?: string,
+      memberCount: number,
+      version: number,
+      hold: boolean,
+      muted: boolean,
+    };
+    didFindOrphanedCall: {
+      callUUID: string,
+      direction: 'incoming' | 'outgoing',
+      number: string | null,
+      state: string,
+      stateCode: number,
+      createdAt: number,
+      updatedAt: number,
+    };
+    didReceiveWakeCalls: {
+      calls: {
+        callUUID: string,
+        name: string,
+        handle: string,
+      }[],
+    };
+  }
+
+  export type CallCommandAction = 'end' | 'reject' | 'answer' | 'hold' | 'unhold' | 'mute' | 'unmute';
+
+  export type CallCommand = {
+    uuid: string,
+    action: CallCommandAction,
+  }
+
+  export type CallCommandResult = {
+    uuid: string | null,
+    action: CallCommandAction | null,
+    success: boolean,
+    error?: string,
+  }
+
+  export type CallStateSnapshot = {
+    callUUID: string,
+    state: string,
+    stateCode: number,
+    onHold: boolean,
+    muted: boolean,
+    audioRoute: string | null,
+    direction: 'incoming' | 'outgoing',
+    createdAt: number,
+    updatedAt: number,
+    connectedAt?: number,
+    endedAt?: number,
+    version: number,
+  }
+
+  export type CallHistoryEntry = {
+    id: number,
+    callUUID: string,
+    direction: 'incoming' | 'outgoing',
+    number: string | null,
+    name: string | null,
+    startedAt: number,
+    connectedAt?: number,
+    duration?: number,
+    endedAt: number,
+    cause: 'local' | 'remote' | 'rejected' | 'missed' | 'busy' | 'error' | 'answeredElsewhere' | 'canceled' | 'other' | 'unknown',
   }
 
   type HandleType = 'generic' | 'number' | 'email';
@@ -116,7 +205,45 @@ declare module 'react-native-callkeep' {
         channelName: string,
         notificationTitle: string,
         notificationIcon?: string
-      }
+      },
+      callPolicy?: {
+        autoHold?: boolean,
+        maxConcurrentCalls?: number,
+      },
+      incomingCallDeduplication?: {
+        enabled?: boolean,
+        windowMs?: number,
+        maxEntries?: number,
+        matchCaller?: boolean,
+      },
+      incomingCallAdmission?: {
+        burst?: number,
+        ratePerSecond?: number,
+        overflow?: 'rejectBusy' | 'queue' | 'dropOldestRinging',
+        maxQueueSize?: number,
+        maxQueueWaitMs?: number,
+      },
+      callHistory?: {
+        enabled?: boolean,
+        maxEntries?: number,
+      },
+      headlessTask?: {
+        timeout?: number,
+        retryCount?: number,
+        retryDelay?: number,
+      },
+      incomingCallNotification?: {
+        enabled?: boolean,
+        channelId?: string,
+        channelName?: string,
+        text?: string,
+        answerText?: string,
+        declineText?: string,
+        notificationIcon?: string,
+        fullScreen?: boolean,
+      },
+      trace?: boolean,
+      alwaysQueuedEvents?: string[],
     }
   }
 
@@ -176,6 +303,25 @@ declare module 'react-native-callkeep' {
       hasVideo?: boolean,
     ): void
 
+    /**
+     * @description prepareOutgoingCall method is available only on Android.
+     */
+    static prepareOutgoingCall(): Promise<{
+      prepared: boolean,
+      durationMs: number,
+    }>
+
+    /**
+     * @description getOutgoingCallStats method is available only on Android.
+     */
+    static getOutgoingCallStats(): Promise<{
+      prepared: boolean,
+      dials: number,
+      fastDials: number,
+      lastDialMs?: number,
+      averageDialMs?: number,
+    }>
+
     static updateDisplay(
       uuid: string,
       displayName: string,
@@ -205,10 +351,35 @@ declare module 'react-native-callkeep' {
 
     static endAllCalls(): void
 
+    /**
+     * @description endCalls method is available only on Android.
+     */
+    static endCalls(uuids: string[]): Promise<CallCommandResult[]>
+
+    /**
+     * @description setOnHoldMany method is available only on Android.
+     */
+    static setOnHoldMany(uuids: string[], held: boolean): Promise<CallCommandResult[]>
+
+    /**
+     * @description setMutedMany method is available only on Android.
+     */
+    static setMutedMany(uuids: string[], muted: boolean): Promise<CallCommandResult[]>
+
+    /**
+     * @description applyCommands method is available only on Android.
+     */
+    static applyCommands(commands: CallCommand[]): Promise<CallCommandResult[]>
+
     static setReachable(): void
 
     static setSettings(settings: IOptions): void;
 
+    /**
+     * @description updateSettings method is available only on Android.
+     */
+    static updateSettings(settings: { [K in keyof IOptions['android']]?: IOptions['android'][K] | null }): void;
+
     /**
      * @description isCallActive method is available only on iOS.
      */
@@ -222,6 +393,22 @@ declare module 'react-native-callkeep' {
       outgoing: boolean
     }[] | void>
 
+    /**
+     * @description getActiveCalls method is available only on Android.
+     */
+    static getActiveCalls(): Promise<{ epoch: string, version: number, calls: CallStateSnapshot[] }>
+
+    /**
+     * @description getCallChangesSince method is available only on Android.
+     */
+    static getCallChangesSince(version: number, epoch: string): Promise<{
+      epoch: string,
+      version: number,
+      full: boolean,
+      calls: CallStateSnapshot[],
+      removed: CallStateSnapshot[],
+    }>
+
     static getAudioRoutes(): Promise<void>
 
     static setAudioRoute: (uuid: string, inputName: string) => Promise<void>
@@ -254,11 +441,55 @@ declare module 'react-native-callkeep' {
 
     static setConnectionState(uuid: string, state: number): void
 
+    /**
+     * @description mergeCalls method is available only on Android.
+     */
+    static mergeCalls(uuid1: string, uuid2: string): Promise<string>
+
+    /**
+     * @description separateCall method is available only on Android.
+     */
+    static separateCall(uuid: string): void
+
+    /**
+     * @description setConferenceOnHold method is available only on Android.
+     */
+    static setConferenceOnHold(conferenceId: string, held: boolean): void
+
+    /**
+     * @description setConferenceMuted method is available only on Android.
+     */
+    static setConferenceMuted(conferenceId: string, muted: boolean): void
+
+    /**
+     * @description getConferences method is available only on Android.
+     */
+    static getConferences(): Promise<{ conferenceId: string, callUUIDs: string[], version: number, hold: boolean, muted: boolean }[]>
+
     /**
      * @descriptions sendDTMF is used to send DTMF tones to the PBX.
      */
     static sendDTMF(uuid: string, key: string): void
 
+    /**
+     * @description sendDTMFSequence method is available only on Android.
+     */
+    static sendDTMFSequence(
+      uuid: string,
+      digits: string,
+      options?: { toneDuration?: number, pauseDuration?: number, progressBatchSize?: number, waitForAck?: boolean },
+    ): Promise<boolean>
+
+    /**
+     * @description stopDTMFSequence method is available only on Android.
+     */
+    static stopDTMFSequence(uuid: string): void
+
+    /**
+     * @description acknowledgeDTMF method is available only on Android.
+     */
+    static acknowledgeDTMF(uuid: string): void
+
     static checkIfBusy(): Promise<boolean>
 
     static checkSpeaker(): Promise<boolean>
@@ -272,6 +503,137 @@ declare module 'react-native-callkeep' {
 
     static canMakeMultipleCalls(allow: boolean): void
 
+    /**
+     * @description getIncomingCallDeduplicationStats method is available only on Android.
+     */
+    static getIncomingCallDeduplicationStats(): Promise<{
+      duplicates: number,
+      duplicatesByUuid: number,
+      duplicatesByCaller: number,
+      tracked: number,
+    }>
+
+    /**
+     * @description getIncomingCallAdmissionStats method is available only on Android.
+     */
+    static getIncomingCallAdmissionStats(): Promise<{
+      enabled: boolean,
+      admitted: number,
+      rejected: number,
+      queued: number,
+      droppedRinging: number,
+      queueDepth: number,
+      tokens: number,
+    }>
+
+    /**
+     * @description getPendingWakeCalls method is available only on Android.
+     */
+    static getPendingWakeCalls(): Promise<{
+      callUUID: string,
+      name: string,
+      handle: string,
+    }[]>
+
+    /**
+     * @description getHeadlessTaskStats method is available only on Android.
+     */
+    static getHeadlessTaskStats(): Promise<{
+      wakeUps: number,
+      coalescedWakeUps: number,
+      taskInFlight: boolean,
+      pendingCalls: number,
+    }>
+
+    /**
+     * @description getReactInstanceStats method is available only on Android.
+     */
+    static getReactInstanceStats(): Promise<{
+      state: 'idle' | 'warming' | 'ready' | 'attached',
+      prewarmCount: number,
+      readyAfterMs?: number,
+      attachedAfterMs?: number,
+    }>
+
+    /**
+     * @description getCallHistory method is available only on Android.
+     */
+    static getCallHistory(
+      filter?: {
+        number?: string,
+        direction?: 'incoming' | 'outgoing',
+        from?: number,
+        to?: number,
+      },
+      cursor?: string | null,
+      limit?: number,
+    ): Promise<{
+      calls: CallHistoryEntry[],
+      cursor: string | null,
+    }>
+
+    /**
+     * @description clearCallHistory method is available only on Android.
+     */
+    static clearCallHistory(): void
+
+    /**
+     * @description getEndedCall method is available only on Android.
+     */
+    static getEndedCall(uuid: string): Promise<{
+      callUUID: string,
+      direction: 'incoming' | 'outgoing',
+      cause: CallHistoryEntry['cause'],
+      createdAt: number,
+      connectedAt?: number,
+      duration?: number,
+      endedAt: number,
+      attributes: { [key: string]: string },
+    } | null>
+
+    /**
+     * @description getStats method is available only on Android.
+     */
+    static getStats(): Promise<{
+      connectionsCreated: number,
+      connectionsFailed: number,
+      eventsSent: number,
+      eventsQueued: number,
+      eventsDropped: number,
+      wakeUps: number,
+      reachabilityTimeouts: number,
+      foregroundServiceStarts: number,
+      activeConnections: number,
+      activeConferences: number,
+      delayedServiceEvents: number,
+      delayedJSEvents: number,
+    }>
+
+    /**
+     * @description getConnectionLifecycleStats method is available only on Android.
+     */
+    static getConnectionLifecycleStats(): Promise<{
+      transitions: { [transition: string]: { count: number, averageMs: number, maxMs: number } },
+      duplicates: { [trigger: string]: number },
+      invariantViolations: number,
+    }>
+
+    /**
+     * @description getCallPolicyDecisions method is available only on Android.
+     */
+    static getCallPolicyDecisions(): Promise<{
+      decisions: {
+        callUUID: string,
+        decision: 'accept' | 'rejectBusy' | 'rejectLimit' | 'autoHold',
+        direction: 'incoming' | 'outgoing',
+        concurrentCalls: number,
+        timestamp: number,
+      }[],
+      accepted: number,
+      rejected: number,
+      autoHeld: number,
+    }>
+
     static setCurrentCallActive(callUUID: string): void
 
     static backToForeground(): void
@@ -1,6 +1,6 @@
 import { NativeModules, Platform, Alert } from 'react-native';
 
-import { listeners, emit } from './actions';
+import { listeners, eventNames, emit } from './actions';
 
 const RNCallKeepModule = NativeModules.RNCallKeep;
 const isIOS = Platform.OS === 'ios';
@@ -76,8 +76,9 @@ class RNCallKeep {
       return;
     }
 
+    let removed = listenerSet.size;
     if (listener) {
-      listenerSet.delete(listener);
+      removed = listenerSet.delete(listener) ? 1 : 0;
       listener.remove();
       if (listenerSet.size <= 0) {
         this._callkeepEventHandlers.delete(type);
@@ -88,6 +89,10 @@ class RNCallKeep {
       });
       this._callkeepEventHandlers.delete(type);
     }
+
+    if (!isIOS && removed > 0) {
+      RNCallKeepModule.removeEventListeners(eventNames[type], removed);
+    }
   };
 
   setup = async (options) => {
@@ -100,6 +105,8 @@ class RNCallKeep {
 
   setSettings = (settings) => RNCallKeepModule.setSettings(settings[isIOS ? 'ios' : 'android']);
 
+  updateSettings = (settings) => isIOS ? null : RNCallKeepModule.updateSettings(settings);
+
   registerPhoneAccount = (options) => {
     if (isIOS) {
       return;
@@ -176,6 +183,16 @@ class RNCallKeep {
     RNCallKeepModule.startCall(uuid, handle, contactIdentifier, handleType, hasVideo);
   };
 
+  prepareOutgoingCall = () =>
+    isIOS
+      ? Promise.reject('RNCallKeep.prepareOutgoingCall was called from unsupported OS')
+      : RNCallKeepModule.prepareOutgoingCall();
+
+  getOutgoingCallStats = () =>
+    isIOS
+      ? Promise.reject('RNCallKeep.getOutgoingCallStats was called from unsupported OS')
+      : RNCallKeepModule.getOutgoingCallStats();
+
   checkPhoneAccountEnabled = async () => {
     if (isIOS) {
       return;
@@ -228,10 +245,40 @@ class RNCallKeep {
     }
   };
 
+  getActiveCalls = () =>
+    isIOS
+      ? Promise.reject('RNCallKeep.getActiveCalls was called from unsupported OS')
+      : RNCallKeepModule.getActiveCalls();
+
+  getCallChangesSince = (version, epoch = null) =>
+    isIOS
+      ? Promise.reject('RNCallKeep.getCallChangesSince was called from unsupported OS')
+      : RNCallKeepModule.getCallChangesSince(version, epoch);
+
   endCall = (uuid) => RNCallKeepModule.endCall(uuid);
 
   endAllCalls = () => RNCallKeepModule.endAllCalls();
 
+  endCalls = (uuids) =>
+    isIOS
+      ? Promise.reject('RNCallKeep.endCalls was called from unsupported OS')
+      : RNCallKeepModule.endCalls(uuids);
+
+  setOnHoldMany = (uuids, shouldHold) =>
+    isIOS
+      ? Promise.reject('RNCallKeep.setOnHoldMany was called from unsupported OS')
+      : RNCallKeepModule.setOnHoldMany(uuids, shouldHold);
+
+  setMutedMany = (uuids, shouldMute) =>
+    isIOS
+      ? Promise.reject('RNCallKeep.setMutedMany was called from unsupported OS')
+      : RNCallKeepModule.setMutedMany(uuids, shouldMute);
+
+  applyCommands = (commands) =>
+    isIOS
+      ? Promise.reject('RNCallKeep.applyCommands was called from unsupported OS')
+      : RNCallKeepModule.applyCommands(commands);
+
   supportConnectionService = () => supportConnectionService;
 
   hasPhoneAccount = async () => (isIOS ? true : await RNCallKeepModule.hasPhoneAccount());
@@ -243,6 +290,16 @@ class RNCallKeep {
   };
 
   sendDTMF = (uuid, key) => RNCallKeepModule.sendDTMF(uuid, key);
+
+  sendDTMFSequence = (uuid, digits, options = {}) =>
+    isIOS
+      ? Promise.reject('RNCallKeep.sendDTMFSequence was called from unsupported OS')
+      : RNCallKeepModule.sendDTMFSequence(uuid, digits, options);
+
+  stopDTMFSequence = (uuid) => isIOS ? null : RNCallKeepModule.stopDTMFSequence(uuid);
+
+  acknowledgeDTMF = (uuid) => isIOS ? null : RNCallKeepModule.acknowledgeDTMF(uuid);
+
   /**
    * @description when Phone call is active, Android control the audio service via connection service. so this function help to toggle the audio to Speaker or wired/ear-piece or vice-versa
    * @param {*} uuid
@@ -286,6 +343,54 @@ class RNCallKeep {
     RNCallKeepModule.canMakeMultipleCalls(state);
   };
 
+  getIncomingCallDeduplicationStats = () =>
+    isIOS
+      ? Promise.reject('RNCallKeep.getIncomingCallDeduplicationStats was called from unsupported OS')
+      : RNCallKeepModule.getIncomingCallDeduplicationStats();
+
+  getIncomingCallAdmissionStats = () =>
+    isIOS
+      ? Promise.reject('RNCallKeep.getIncomingCallAdmissionStats was called from unsupported OS')
+      : RNCallKeepModule.getIncomingCallAdmissionStats();
+
+  getPendingWakeCalls = () =>
+    isIOS
+      ? Promise.reject('RNCallKeep.getPendingWakeCalls was called from unsupported OS')
+      : RNCallKeepModule.getPendingWakeCalls();
+
+  getHeadlessTaskStats = () =>
+    isIOS
+      ? Promise.reject('RNCallKeep.getHeadlessTaskStats was called from unsupported OS')
+      : RNCallKeepModule.getHeadlessTaskStats();
+
+  getReactInstanceStats = () =>
+    isIOS
+      ? Promise.reject('RNCallKeep.getReactInstanceStats was called from unsupported OS')
+      : RNCallKeepModule.getReactInstanceStats();
+
+  getCallHistory = (filter = {}, cursor = null, limit = 20) =>
+    isIOS
+      ? Promise.reject('RNCallKeep.getCallHistory was called from unsupported OS')
+      : RNCallKeepModule.getCallHistory(filter, cursor, limit);
+
+  clearCallHistory = () => isIOS ? null : RNCallKeepModule.clearCallHistory();
+
+  getEndedCall = (uuid) =>
+    isIOS ? Promise.reject('RNCallKeep.getEndedCall was called from unsupported OS') : RNCallKeepModule.getEndedCall(uuid);
+
+  getStats = () =>
+    isIOS ? Promise.reject('RNCallKeep.getStats was called from unsupported OS') : RNCallKeepModule.getStats();
+
+  getConnectionLifecycleStats = () =>
+    isIOS
+      ? Promise.reject('RNCallKeep.getConnectionLifecycleStats was called from unsupported OS')
+      : RNCallKeepModule.getConnectionLifecycleStats();
+
+  getCallPolicyDecisions = () =>
+    isIOS
+      ? Promise.reject('RNCallKeep.getCallPolicyDecisions was called from unsupported OS')
+      : RNCallKeepModule.getCallPolicyDecisions();
+
   setCurrentCallActive = (callUUID) => {
     if (isIOS) {
       return;
@@ -311,6 +416,24 @@ class RNCallKeep {
 
   setOnHold = (uuid, shouldHold) => RNCallKeepModule.setOnHold(uuid, shouldHold);
 
+  mergeCalls = (uuid1, uuid2) =>
+    isIOS
+      ? Promise.reject('RNCallKeep.mergeCalls was called from unsupported OS')
+      : RNCallKeepModule.mergeCalls(uuid1, uuid2);
+
+  separateCall = (uuid) => isIOS ? null : RNCallKeepModule.separateCall(uuid);
+
+  setConferenceOnHold = (conferenceId, shouldHold) =>
+    isIOS ? null : RNCallKeepModule.setConferenceOnHold(conferenceId, shouldHold);
+
+  setConferenceMuted = (conferenceId, shouldMute) =>
+    isIOS ? null : RNCallKeepModule.setConferenceMuted(conferenceId, shouldMute);
+
+  getConferences = () =>
+    isIOS
+      ? Promise.reject('RNCallKeep.getConferences was called from unsupported OS')
+      : RNCallKeepModule.getConferences();
+
   setConnectionState = (uuid, state) => isIOS ? null : RNCallKeepModule.setConnectionState(uuid, state);
 
   setReachable = () => RNCallKeepModule.setReachable();